@@ -0,0 +1,565 @@
+package ir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Micro benchmarks of the search hot paths: stemming, metaphone encoding,
+ * tokenizing, building the index, answering short, long and rare term
+ * queries, proximity scoring, phrase and boolean queries, building result
+ * snippets and fetching stored documents, each over
+ * the first N documents of the corpus for every size N.
+ *
+ * Every benchmark is warmed up, then timed over several fixed length
+ * iterations; the mean time per operation is reported. Results can be saved
+ * and later runs compared with them, so a change to the ir package can be
+ * measured against a baseline: benchmark/baseline.txt, which "ant benchmark"
+ * compares with. Timings depend on the machine, save a baseline of your own
+ * before the change when comparing on another one:
+ *
+ * Benchmark [-sizes 1000,5671] [-corpus dir] [-only name] [-save file]
+ * [-baseline file]
+ *
+ * The benchmarks are a source root of their own, next to the tests, so they
+ * are not part of the application jar.
+ */
+public class Benchmark {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 500000000L;
+    private static final int QUERIES = 200;
+
+    // Results are added here so the JIT cannot drop the benchmarked work
+    private static volatile long sink;
+
+    private final Map<String, Double> results = new LinkedHashMap<String, Double>();
+    private final Map<String, Double> baseline;
+    private final String only;
+
+    private interface Operation {
+
+        /**
+         * Runs the benchmarked code, returns the number of operations done.
+         */
+        int run() throws Exception;
+    }
+
+    Benchmark(Map<String, Double> baseline, String only) {
+        this.baseline = baseline;
+        this.only = only;
+    }
+
+    // Times op and prints the mean nanoseconds per operation
+    private void measure(String name, int size, String unit, Operation op) throws Exception {
+        if (only != null && !name.startsWith(only)) {
+            return;
+        }
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration(op);
+        }
+        double[] times = new double[ITERATIONS];
+        double mean = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            times[i] = iteration(op);
+            mean += times[i] / ITERATIONS;
+        }
+        double variance = 0;
+        for (double time : times) {
+            variance += (time - mean) * (time - mean) / ITERATIONS;
+        }
+        String key = name + "[" + size + "]";
+        results.put(key, mean);
+        StringBuilder line = new StringBuilder(String.format("%-28s %14.1f ns/%-6s +- %4.1f%%", key, mean, unit,
+                mean == 0 ? 0 : 100 * Math.sqrt(variance) / mean));
+        if (baseline.containsKey(key)) {
+            line.append(String.format("   %+6.1f%% vs baseline", 100 * (mean / baseline.get(key) - 1)));
+        }
+        System.out.println(line);
+    }
+
+    // Runs op for at least ITERATION_NANOS, returns nanoseconds per operation
+    private static double iteration(Operation op) throws Exception {
+        long operations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            operations += op.run();
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        return (double) elapsed / operations;
+    }
+
+    void run(File corpusDir, int size) throws Exception {
+        File[] files = corpusDir.listFiles();
+        if (files == null) {
+            throw new IOException("No corpus in " + corpusDir);
+        }
+        Arrays.sort(files);
+        List<File> corpus = new ArrayList<File>();
+        for (File file : files) {
+            if (file.getName().endsWith(".txt") && corpus.size() < size) {
+                corpus.add(file);
+            }
+        }
+        size = corpus.size();
+        final List<String> texts = new ArrayList<String>();
+        for (File file : corpus) {
+            texts.add(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        }
+
+        // lower cased words of the texts, and their stems that get encoded
+        final List<char[]> words = new ArrayList<char[]>();
+        for (String text : texts) {
+            Iterator<String> tokens = Tokenizer.SIMPLE.tokens(text);
+            while (tokens.hasNext()) {
+                words.add(tokens.next().toLowerCase().toCharArray());
+            }
+        }
+        final List<String> stems = new ArrayList<String>();
+        Stemmer stemmer = new Stemmer();
+        for (char[] word : words) {
+            stemmer.stem(word, 0, word.length);
+            if (Analyzer.isWord(stemmer.getResultBuffer(), stemmer.getResultLength())) {
+                stems.add(stemmer.toString());
+            }
+        }
+        final char[][] stemChars = new char[stems.size()][];
+        for (int i = 0; i < stemChars.length; i++) {
+            stemChars[i] = stems.get(i).toCharArray();
+        }
+
+        measure("stem", size, "word", new Operation() {
+            final Stemmer s = new Stemmer();
+
+            @Override
+            public int run() {
+                long sum = 0;
+                for (char[] word : words) {
+                    s.stem(word, 0, word.length);
+                    sum += s.getResultLength();
+                }
+                sink += sum;
+                return words.size();
+            }
+        });
+        measure("encode", size, "word", new Operation() {
+            @Override
+            public int run() {
+                long sum = 0;
+                for (String stem : stems) {
+                    sum += InformationRetrievalUI.encode(stem).length();
+                }
+                sink += sum;
+                return stems.size();
+            }
+        });
+        measure("metaphone", size, "word", new Operation() {
+            @Override
+            public int run() {
+                long sum = 0;
+                for (char[] stem : stemChars) {
+                    sum += Metaphone.encode(stem, 0, stem.length);
+                }
+                sink += sum;
+                return stemChars.length;
+            }
+        });
+        for (final Tokenizer tokenizer : new Tokenizer[]{Tokenizer.PTB, Tokenizer.SIMPLE}) {
+            measure("tokenize-" + tokenizer.name(), size, "doc", new Operation() {
+                @Override
+                public int run() {
+                    long sum = 0;
+                    for (String text : texts) {
+                        Iterator<String> tokens = tokenizer.tokens(text);
+                        while (tokens.hasNext()) {
+                            sum += tokens.next().length();
+                        }
+                    }
+                    sink += sum;
+                    return texts.size();
+                }
+            });
+        }
+
+        // a corpus directory with only the first size documents
+        final File dir = Files.createTempDirectory("ir-benchmark").toFile();
+        try {
+            File subset = new File(dir, "corpus");
+            subset.mkdir();
+            for (File file : corpus) {
+                Files.copy(file.toPath(), new File(subset, file.getName()).toPath());
+            }
+            build(subset, size);
+            queries(new File(dir, "index"), subset, size);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private void build(final File corpusDir, int size) throws Exception {
+        final Tokenizer tokenizer = Tokenizer.forName(System.getProperty("ir.tokenizer", "ptb"));
+        measure("build-" + tokenizer.name(), size, "doc", new Operation() {
+            @Override
+            public int run() throws Exception {
+                // each build starts with a cold term cache
+                Analyzer.cache().clear();
+                ParallelIndexBuilder builder = new ParallelIndexBuilder(tokenizer);
+                builder.addCorpus(corpusDir);
+                IndexWriter writer = builder.build();
+                sink += writer.numDocs();
+                return writer.numDocs();
+            }
+        });
+    }
+
+    private void queries(File indexDir, File corpusDir, int size) throws Exception {
+        final Tokenizer tokenizer = Tokenizer.forName(System.getProperty("ir.tokenizer", "ptb"));
+        IndexDirectory directory = IndexDirectory.open(indexDir, tokenizer, true);
+        ParallelIndexBuilder.update(directory, new File(indexDir, "none.json").getPath(), corpusDir);
+        final SegmentedIndex index = directory.current();
+
+        // words of the corpus by the document frequency of their term
+        List<String> frequent = new ArrayList<String>();
+        List<String> rare = new ArrayList<String>();
+        List<String> all = new ArrayList<String>();
+        File[] files = corpusDir.listFiles();
+        Arrays.sort(files);
+        for (File file : files) {
+            Iterator<String> tokens = tokenizer.tokens(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+            while (tokens.hasNext()) {
+                String word = tokens.next();
+                int docFreq = index.docFreq(Analyzer.term(word));
+                all.add(word);
+                if (docFreq >= index.numDocs() / 20) {
+                    frequent.add(word);
+                } else if (docFreq <= 2) {
+                    rare.add(word);
+                }
+            }
+        }
+        Random random = new Random(42);
+        final Searcher searcher = new Searcher(index);
+        final Similarity similarity = Similarity.forName(System.getProperty("ir.similarity", "bim"));
+        List<int[]> pages = new ArrayList<int[]>();
+        Object[][] kinds = {{"query-short", frequent, 2}, {"query-long", all, 10}, {"query-rare", rare, 2}};
+        for (Object[] kind : kinds) {
+            @SuppressWarnings("unchecked")
+            List<String> words = (List<String>) kind[1];
+            int length = (Integer) kind[2];
+            if (words.isEmpty()) {
+                continue;
+            }
+            final String[] queries = new String[QUERIES];
+            for (int q = 0; q < QUERIES; q++) {
+                StringBuilder query = new StringBuilder();
+                for (int i = 0; i < length; i++) {
+                    query.append(words.get(random.nextInt(words.size()))).append(' ');
+                }
+                queries[q] = query.toString();
+            }
+            measure((String) kind[0], size, "query", new Operation() {
+                @Override
+                public int run() {
+                    long sum = 0;
+                    for (String query : queries) {
+                        sum += searcher.search(query, similarity, 10).size();
+                    }
+                    sink += sum;
+                    return queries.length;
+                }
+            });
+            if (kind[0].equals("query-short")) {
+                for (String query : queries) {
+                    TopDocs topDocs = searcher.search(query, similarity, 10);
+                    int[] page = new int[topDocs.size()];
+                    for (int i = 0; i < page.length; i++) {
+                        page[i] = topDocs.docId(i);
+                    }
+                    pages.add(page);
+                }
+                snippets(searcher, queries, similarity, size);
+                final Searcher proximity = new Searcher(index, new ProximityEvaluator());
+                measure("proximity-short", size, "query", new Operation() {
+                    @Override
+                    public int run() {
+                        long sum = 0;
+                        for (String query : queries) {
+                            sum += proximity.search(query, similarity, 10).size();
+                        }
+                        sink += sum;
+                        return queries.length;
+                    }
+                });
+            }
+        }
+        phrases(searcher, all, random, similarity, size);
+        booleans(searcher, rare, frequent, random, similarity, size);
+        stores(indexDir.getParentFile(), index, pages, size);
+        directory.close();
+    }
+
+    // Phrases of three consecutive words of the corpus, and the same words
+    // as three single word phrases, the AND a phrase query is compared with
+    private void phrases(final Searcher searcher, List<String> words, Random random, final Similarity similarity,
+            int size) throws Exception {
+        if (words.size() < 3) {
+            return;
+        }
+        final String[] phrases = new String[QUERIES];
+        final String[] conjunctions = new String[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            int start;
+            do {
+                start = random.nextInt(words.size() - 2);
+            } while (words.get(start).contains("\"") || words.get(start + 1).contains("\"")
+                    || words.get(start + 2).contains("\""));
+            phrases[q] = "\"" + words.get(start) + " " + words.get(start + 1) + " " + words.get(start + 2) + "\"";
+            conjunctions[q] = "\"" + words.get(start) + "\" \"" + words.get(start + 1) + "\" \"" + words.get(start + 2) + "\"";
+        }
+        Object[][] kinds = {{"phrase-and", conjunctions}, {"phrase", phrases}};
+        for (Object[] kind : kinds) {
+            final String[] queries = (String[]) kind[1];
+            measure((String) kind[0], size, "query", new Operation() {
+                @Override
+                public int run() {
+                    long sum = 0;
+                    for (String query : queries) {
+                        sum += searcher.search(query, similarity, 10).size();
+                    }
+                    sink += sum;
+                    return queries.length;
+                }
+            });
+        }
+    }
+
+    // A rare word ANDed with a frequent one, which skips through most of the
+    // frequent word's postings, and the two ORed, which reads them all
+    private void booleans(final Searcher searcher, List<String> rare, List<String> frequent, Random random,
+            final Similarity similarity, int size) throws Exception {
+        List<String> rareWords = operands(rare);
+        List<String> frequentWords = operands(frequent);
+        if (rareWords.isEmpty() || frequentWords.isEmpty()) {
+            return;
+        }
+        final String[] conjunctions = new String[QUERIES];
+        final String[] disjunctions = new String[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            String a = rareWords.get(random.nextInt(rareWords.size()));
+            String b = frequentWords.get(random.nextInt(frequentWords.size()));
+            conjunctions[q] = a + " AND " + b;
+            disjunctions[q] = a + " OR " + b;
+        }
+        Object[][] kinds = {{"boolean-and", conjunctions}, {"boolean-or", disjunctions}};
+        for (Object[] kind : kinds) {
+            final String[] queries = (String[]) kind[1];
+            measure((String) kind[0], size, "query", new Operation() {
+                @Override
+                public int run() {
+                    long sum = 0;
+                    for (String query : queries) {
+                        sum += searcher.search(query, similarity, 10).size();
+                    }
+                    sink += sum;
+                    return queries.length;
+                }
+            });
+        }
+    }
+
+    // The words that are no operators or syntax of the boolean language
+    private static List<String> operands(List<String> words) {
+        List<String> operands = new ArrayList<String>();
+        for (String word : words) {
+            if (!word.matches("AND|OR|NOT|.*[()\"].*")) {
+                operands.add(word);
+            }
+        }
+        return operands;
+    }
+
+    // Snippets of the 30 best documents of every query
+    private void snippets(final Searcher searcher, final String[] queries, Similarity similarity, int size) throws Exception {
+        final List<Set<String>> terms = new ArrayList<Set<String>>();
+        final List<int[]> results = new ArrayList<int[]>();
+        int docs = 0;
+        for (String query : queries) {
+            TopDocs topDocs = searcher.search(query, similarity, 30);
+            int[] result = new int[topDocs.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = topDocs.docId(i);
+            }
+            terms.add(searcher.terms(query));
+            results.add(result);
+            docs += result.length;
+        }
+        if (docs == 0) {
+            return;
+        }
+        final int snippets = docs;
+        measure("snippet", size, "doc", new Operation() {
+            @Override
+            public int run() {
+                long sum = 0;
+                for (int q = 0; q < results.size(); q++) {
+                    for (String snippet : Snippets.html(searcher.index(), terms.get(q), results.get(q))) {
+                        sum += snippet.length();
+                    }
+                }
+                sink += sum;
+                return snippets;
+            }
+        });
+    }
+
+    // Size of the documents stored raw and compressed, and the time to fetch
+    // random documents and the result pages of the short queries from each
+    private void stores(File dir, SegmentedIndex index, final List<int[]> pages, int size) throws Exception {
+        int numDocs = index.numDocs();
+        byte[] bytes = new byte[0];
+        int[] starts = new int[numDocs + 1];
+        for (int doc = 0; doc < numDocs; doc++) {
+            byte[] text = index.document(doc).getBytes(StandardCharsets.UTF_8);
+            starts[doc + 1] = starts[doc] + text.length;
+            if (starts[doc + 1] > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(starts[doc + 1], 2 * bytes.length));
+            }
+            System.arraycopy(text, 0, bytes, starts[doc], text.length);
+        }
+        File raw = new File(dir, "raw.seg");
+        File compressed = new File(dir, "lz.seg");
+        DocumentStore.write(raw, bytes, starts, numDocs, false);
+        DocumentStore.write(compressed, bytes, starts, numDocs, true);
+        long rawSize = DocumentStore.open(raw).sizeInBytes();
+        long compressedSize = DocumentStore.open(compressed).sizeInBytes();
+        System.out.println(String.format("%-28s %14d bytes raw, %d compressed (%.1f%%)", "store[" + size + "]",
+                rawSize, compressedSize, 100.0 * compressedSize / rawSize));
+
+        Random random = new Random(42);
+        final int[] docs = new int[QUERIES];
+        for (int i = 0; i < docs.length; i++) {
+            docs[i] = random.nextInt(numDocs);
+        }
+        Object[][] stores = {{"raw", DocumentStore.open(raw)}, {"lz", DocumentStore.open(compressed)},
+            {"lz-nocache", DocumentStore.open(compressed, 0)}};
+        for (Object[] store : stores) {
+            final DocumentStore documents = (DocumentStore) store[1];
+            measure("fetch-" + store[0], size, "doc", new Operation() {
+                @Override
+                public int run() {
+                    long sum = 0;
+                    for (int doc : docs) {
+                        sum += documents.document(doc).length();
+                    }
+                    sink += sum;
+                    return docs.length;
+                }
+            });
+            if (pages.isEmpty()) {
+                continue;
+            }
+            measure("page-" + store[0], size, "page", new Operation() {
+                @Override
+                public int run() {
+                    long sum = 0;
+                    for (int[] page : pages) {
+                        for (int doc : page) {
+                            sum += documents.document(doc).length();
+                        }
+                    }
+                    sink += sum;
+                    return pages.size();
+                }
+            });
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    private static Map<String, Double> load(String fileName) throws IOException {
+        Map<String, Double> results = new LinkedHashMap<String, Double>();
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length == 2 && !line.startsWith("#")) {
+                    results.put(fields[0], Double.parseDouble(fields[1]));
+                }
+            }
+        } finally {
+            in.close();
+        }
+        return results;
+    }
+
+    private void save(String fileName) throws IOException {
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8));
+        try {
+            out.println("# benchmark[size] ns/op, " + System.getProperty("java.vm.name") + " "
+                    + System.getProperty("java.version") + ", " + Runtime.getRuntime().availableProcessors() + " cores");
+            for (Map.Entry<String, Double> result : results.entrySet()) {
+                out.println(result.getKey() + " " + String.format("%.1f", result.getValue()));
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String sizes = "1000,5671";
+        String corpus = "../all_project_data/corpus";
+        String only = null;
+        String save = null;
+        String baseline = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("-sizes")) {
+                sizes = args[i + 1];
+            } else if (args[i].equals("-corpus")) {
+                corpus = args[i + 1];
+            } else if (args[i].equals("-only")) {
+                only = args[i + 1];
+            } else if (args[i].equals("-save")) {
+                save = args[i + 1];
+            } else if (args[i].equals("-baseline")) {
+                baseline = args[i + 1];
+            } else {
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        Benchmark benchmark = new Benchmark(baseline == null ? new LinkedHashMap<String, Double>() : load(baseline), only);
+        for (String size : sizes.split(",")) {
+            benchmark.run(new File(corpus), Integer.parseInt(size.trim()));
+        }
+        if (save != null) {
+            benchmark.save(save);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package ir;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.TreeMap;
+
+/**
+ * Turns a piece of text into index terms. Queries and documents go through
+ * the same chain (tokenize, lower case, stem, metaphone) so that their terms
+ * line up; the tokenizer is the one recorded in the index.
+ */
+public class Analyzer {
+
+    private Analyzer() {
+    }
+
+    // Buffers reused for every token analyzed on a thread
+    private static final class TermBuffer {
+
+        final Stemmer stemmer = new Stemmer();
+        char[] chars = new char[64];
+    }
+
+    private static final ThreadLocal<TermBuffer> BUFFERS = new ThreadLocal<TermBuffer>() {
+        @Override
+        protected TermBuffer initialValue() {
+            return new TermBuffer();
+        }
+    };
+
+    // Terms of the most frequent tokens, shared by all threads and by
+    // indexing and querying
+    private static final TermCache CACHE = new TermCache(Integer.getInteger("ir.termCache", 1 << 16));
+
+    /**
+     * The cache of normalized tokens, for its statistics.
+     */
+    public static TermCache cache() {
+        return CACHE;
+    }
+
+    /**
+     * The term of a single token.
+     */
+    public static String term(String token) {
+        return term(token, BUFFERS.get());
+    }
+
+    private static String term(String token, TermBuffer buffer) {
+        String term = CACHE.get(token);
+        if (term == null) {
+            term = normalize(token, buffer);
+            CACHE.put(token, term);
+        }
+        return term;
+    }
+
+    // Stemming and Metaphone of a single token. The token is lower cased into
+    // the thread's buffer, stemmed and encoded there, only the resulting term
+    // becomes a String.
+    private static String normalize(String token, TermBuffer buffer) {
+        int length = token.length();
+        if (length > buffer.chars.length) {
+            buffer.chars = new char[Math.max(length, buffer.chars.length * 2)];
+        }
+        char[] chars = buffer.chars;
+        for (int c = 0; c < length; c++) {
+            char ch = token.charAt(c);
+            if (ch >= 128) {
+                // non ASCII tokens are rare, let String handle their case
+                // mapping, which may change the length
+                String lower = token.toLowerCase();
+                length = lower.length();
+                if (length > chars.length) {
+                    chars = buffer.chars = new char[length];
+                }
+                lower.getChars(0, length, chars, 0);
+                break;
+            }
+            chars[c] = (ch >= 'A' && ch <= 'Z') ? (char) (ch + ('a' - 'A')) : ch;
+        }
+        Stemmer s = buffer.stemmer;
+        s.stem(chars, 0, length);
+        if (isWord(s.getResultBuffer(), s.getResultLength())) {
+            // Metaphone begins
+            return Metaphone.toString(Metaphone.encode(s.getResultBuffer(), 0, s.getResultLength()));
+        }
+        return new String(s.getResultBuffer(), 0, s.getResultLength());
+    }
+
+    // Same as matching [a-zA-Z][a-z]+ without a regex
+    static boolean isWord(char[] chars, int length) {
+        if (length < 2) {
+            return false;
+        }
+        char first = chars[0];
+        if (!((first >= 'a' && first <= 'z') || (first >= 'A' && first <= 'Z'))) {
+            return false;
+        }
+        for (int c = 1; c < length; c++) {
+            if (chars[c] < 'a' || chars[c] > 'z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the terms of the text together with their frequency, split with
+     * the PTB tokenizer.
+     */
+    public static TreeMap<String, Integer> analyze(String text) {
+        return analyze(text, Tokenizer.PTB);
+    }
+
+    /**
+     * Returns the terms of the text together with their frequency.
+     */
+    public static TreeMap<String, Integer> analyze(CharSequence text, Tokenizer tokenizer) {
+        TreeMap<String, Integer> termFrequency = new TreeMap<String, Integer>();
+        TermBuffer buffer = BUFFERS.get();
+        Iterator<String> tokens = tokenizer.tokens(text);
+        while (tokens.hasNext()) {
+            String term = term(tokens.next(), buffer);
+            Integer freq = termFrequency.get(term);
+            termFrequency.put(term, (freq == null) ? 1 : freq + 1);
+        }
+        return termFrequency;
+    }
+
+    /**
+     * Returns the terms of the text as ids of the dictionary, adding the
+     * terms it does not know yet.
+     */
+    public static TermVector analyze(CharSequence text, Tokenizer tokenizer, TermDictionary dictionary) {
+        return analyze(text, tokenizer, dictionary, false);
+    }
+
+    /**
+     * Returns the terms of the text as ids of the dictionary, with the
+     * positions and offsets of every token if positions is set.
+     */
+    public static TermVector analyze(CharSequence text, Tokenizer tokenizer, TermDictionary dictionary, boolean positions) {
+        int[] termIds = new int[64];
+        int[] starts = positions ? new int[64] : null;
+        int[] ends = positions ? new int[64] : null;
+        int length = 0;
+        TermBuffer buffer = BUFFERS.get();
+        Tokenizer.Tokens tokens = tokenizer.tokens(text);
+        while (tokens.hasNext()) {
+            if (length == termIds.length) {
+                termIds = Arrays.copyOf(termIds, length * 2);
+                if (positions) {
+                    starts = Arrays.copyOf(starts, length * 2);
+                    ends = Arrays.copyOf(ends, length * 2);
+                }
+            }
+            termIds[length] = dictionary.id(term(tokens.next(), buffer));
+            if (positions) {
+                starts[length] = tokens.start();
+                ends[length] = tokens.end();
+            }
+            length++;
+        }
+        return positions ? TermVector.of(termIds, starts, ends, length) : TermVector.of(termIds, length);
+    }
+}
@@ -0,0 +1,52 @@
+package ir;
+
+/**
+ * Binary independence model: the score of a document is the product of the
+ * odds (N - df + 0.5) / (df + 0.5) of the query terms it contains, whatever
+ * their frequency or the length of the document.
+ */
+public class BIMSimilarity extends Similarity {
+
+    @Override
+    public String name() {
+        return "bim";
+    }
+
+    @Override
+    public double neutral() {
+        return 1.00;
+    }
+
+    @Override
+    public double combine(double score, double termScore) {
+        return score * termScore;
+    }
+
+    @Override
+    public double idf(int totalDocuments, int documentFrequency) {
+        return (totalDocuments - documentFrequency + 0.5) / (documentFrequency + 0.5);
+    }
+
+    @Override
+    public double termScore(double idf, int freq, int docLength, double avgDocLength) {
+        return idf;
+    }
+
+    @Override
+    public double phraseScore(double[] idfs, double freq, int docLength, double avgDocLength) {
+        // the odds of all its terms for a phrase that matches exactly, less
+        // for looser matches; odds below 1, of terms in more than half of
+        // the documents, count as 1 so a closer match never scores lower
+        double presence = Math.min(1, freq);
+        double score = 1.00;
+        for (double idf : idfs) {
+            score *= Math.pow(Math.max(1.00, idf), presence);
+        }
+        return score;
+    }
+
+    @Override
+    public double maxTermScore(double idf, int maxFreq, double avgDocLength) {
+        return Math.max(1.00, idf);
+    }
+}
@@ -0,0 +1,64 @@
+package ir;
+
+/**
+ * Okapi BM25: the sum over the query terms a document contains of
+ * idf * tf * (k1 + 1) / (tf + k1 * (1 - b + b * dl / avgdl)).
+ */
+public class BM25Similarity extends Similarity {
+
+    private final double k1;
+    private final double b;
+
+    public BM25Similarity() {
+        this(1.2, 0.75);
+    }
+
+    public BM25Similarity(double k1, double b) {
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    @Override
+    public String name() {
+        return "bm25";
+    }
+
+    @Override
+    public double neutral() {
+        return 0;
+    }
+
+    @Override
+    public double combine(double score, double termScore) {
+        return score + termScore;
+    }
+
+    @Override
+    public double idf(int totalDocuments, int documentFrequency) {
+        return Math.log(1 + (totalDocuments - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    @Override
+    public double termScore(double idf, int freq, int docLength, double avgDocLength) {
+        double norm = avgDocLength == 0 ? 1 : 1 - b + b * docLength / avgDocLength;
+        return idf * freq * (k1 + 1) / (freq + k1 * norm);
+    }
+
+    @Override
+    public double phraseScore(double[] idfs, double freq, int docLength, double avgDocLength) {
+        // every term of the phrase with the phrase frequency as tf
+        double norm = avgDocLength == 0 ? 1 : 1 - b + b * docLength / avgDocLength;
+        double tf = freq * (k1 + 1) / (freq + k1 * norm);
+        double score = 0;
+        for (double idf : idfs) {
+            score += idf * tf;
+        }
+        return score;
+    }
+
+    @Override
+    public double maxTermScore(double idf, int maxFreq, double avgDocLength) {
+        // the score grows with tf and is highest for the shortest document
+        return idf * maxFreq * (k1 + 1) / (maxFreq + k1 * (1 - b));
+    }
+}
@@ -0,0 +1,161 @@
+package ir;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.json.JSONException;
+
+/**
+ * Runs a file of queries, one per line, against the index on all cores and
+ * writes the results in TREC run format:
+ *
+ * query-number Q0 request-id rank score run-tag
+ *
+ * Queries are numbered by line, blank lines are skipped. Analysis and ranking
+ * are those of the UI (-Dir.similarity, the index's tokenizer, MaxScore
+ * evaluation); results are not cached, so every query is evaluated. At the
+ * end the throughput and latency percentiles are printed.
+ *
+ * Usage: BatchSearch queryFile runFile [k [indexDir [jsonFile [corpusDir]]]]
+ */
+public class BatchSearch {
+
+    private final SegmentedIndex index;
+    private final Similarity similarity;
+    private final int k;
+
+    public BatchSearch(SegmentedIndex index, Similarity similarity, int k) {
+        this.index = index;
+        this.similarity = similarity;
+        this.k = k;
+    }
+
+    private static class Result {
+
+        final TopDocs topDocs;
+        final long nanos;
+
+        Result(TopDocs topDocs, long nanos) {
+            this.topDocs = topDocs;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * Runs the queries on that many threads and writes the run.
+     */
+    public void run(List<String> queries, List<Integer> queryNumbers, int threads, PrintWriter run)
+            throws InterruptedException, ExecutionException {
+        final Searcher searcher = new Searcher(index);
+        ExecutorService executor = SearchExecutors.newPool("batch", threads, true);
+        List<Future<Result>> futures = new ArrayList<Future<Result>>(queries.size());
+        long start = System.nanoTime();
+        try {
+            for (final String query : queries) {
+                futures.add(executor.submit(new Callable<Result>() {
+                    @Override
+                    public Result call() {
+                        long t0 = System.nanoTime();
+                        TopDocs topDocs = searcher.search(query, similarity, k);
+                        return new Result(topDocs, System.nanoTime() - t0);
+                    }
+                }));
+            }
+            long[] latencies = new long[queries.size()];
+            String tag = "ir-" + similarity.name();
+            for (int q = 0; q < futures.size(); q++) {
+                Result result = futures.get(q).get();
+                latencies[q] = result.nanos;
+                for (int i = 0; i < result.topDocs.size(); i++) {
+                    int doc = result.topDocs.docId(i);
+                    String requestId = index.requestId(doc);
+                    run.println(queryNumbers.get(q) + " Q0 " + (requestId.isEmpty() ? "doc" + (doc + 1) : requestId)
+                            + " " + (i + 1) + " " + result.topDocs.score(i) + " " + tag);
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            report(latencies, seconds, threads);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void report(long[] latencies, double seconds, int threads) {
+        Arrays.sort(latencies);
+        System.out.println(latencies.length + " queries in " + String.format("%.2f", seconds) + " s, "
+                + String.format("%.1f", latencies.length / seconds) + " queries/s on " + threads + " threads");
+        if (latencies.length > 0) {
+            System.out.println("Latency ms: p50 " + percentile(latencies, 50) + ", p90 " + percentile(latencies, 90)
+                    + ", p99 " + percentile(latencies, 99) + ", p99.9 " + percentile(latencies, 99.9)
+                    + ", max " + String.format("%.3f", latencies[latencies.length - 1] / 1e6));
+        }
+    }
+
+    // Nearest rank percentile of sorted latencies, in milliseconds
+    private static String percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p / 100 * sorted.length);
+        return String.format("%.3f", sorted[Math.max(0, rank - 1)] / 1e6);
+    }
+
+    public static void main(String[] args) throws JSONException, IOException, InterruptedException, ExecutionException {
+        int k = 10;
+        try {
+            k = args.length > 2 ? Integer.parseInt(args[2]) : k;
+        } catch (NumberFormatException ex) {
+            k = 0;
+        }
+        if (args.length < 2 || k < 1) {
+            System.out.println("Usage: BatchSearch queryFile runFile [k [indexDir [jsonFile [corpusDir]]]]");
+            System.out.println("k, the number of results per query, must be at least 1");
+            return;
+        }
+        String indexDirName = args.length > 3 ? args[3] : "../all_project_data/index";
+        String fileName = args.length > 4 ? args[4] : "../all_project_data/pizza_request_dataset.json";
+        String corpusDirName = args.length > 5 ? args[5] : "../all_project_data/corpus";
+        int threads = Integer.getInteger("ir.threads", Runtime.getRuntime().availableProcessors());
+
+        List<String> queries = new ArrayList<String>();
+        List<Integer> queryNumbers = new ArrayList<Integer>();
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(args[0]), StandardCharsets.UTF_8));
+        try {
+            String line;
+            int number = 0;
+            while ((line = in.readLine()) != null) {
+                number++;
+                if (!line.trim().isEmpty()) {
+                    queries.add(line);
+                    queryNumbers.add(number);
+                }
+            }
+        } finally {
+            in.close();
+        }
+
+        IndexDirectory indexDirectory = IndexDirectory.open(new File(indexDirName), Tokenizer.forName(System.getProperty("ir.tokenizer", "ptb")),
+                Boolean.parseBoolean(System.getProperty("ir.positions", "true")));
+        ParallelIndexBuilder.update(indexDirectory, fileName, new File(corpusDirName));
+        Similarity similarity = Similarity.forName(System.getProperty("ir.similarity", "bim"));
+
+        PrintWriter run = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(args[1]), StandardCharsets.UTF_8)));
+        try {
+            new BatchSearch(indexDirectory.current(), similarity, k).run(queries, queryNumbers, threads, run);
+        } finally {
+            run.close();
+        }
+        indexDirectory.close();
+    }
+}
@@ -0,0 +1,408 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates boolean queries. Every part of the query becomes an iterator over
+ * the documents matching it, in doc id order. Conjunctions leapfrog: the
+ * clause matching the fewest documents leads and the others advance() to its
+ * documents, which the skip entries of the postings turn into jumps, so a
+ * selective AND reads only a small part of the long posting lists it is
+ * intersected with. The NOT clauses of a conjunction only check the
+ * documents it matches. Phrases are conjunctions of their terms whose
+ * positions are merged for the documents containing all of them; on an
+ * index without positions they are plain conjunctions.
+ *
+ * The documents matching the query are scored like bags of words by the
+ * terms and phrases they contain that are not under a NOT; only they are
+ * returned.
+ */
+public class BooleanEvaluator {
+
+    public TopDocs evaluate(SegmentedIndex index, BooleanQuery query, Similarity similarity, int k) {
+        Matches root = matches(query, index, similarity);
+        TopKSelector selector = new TopKSelector(k);
+        double neutral = similarity.neutral();
+        for (int doc = root.nextDoc(); doc != PostingsIterator.NO_MORE_DOCS; doc = root.nextDoc()) {
+            selector.collect(doc, root.score(neutral));
+        }
+        return selector.topDocs();
+    }
+
+    private static Matches matches(BooleanQuery query, SegmentedIndex index, Similarity similarity) {
+        if (query instanceof BooleanQuery.Term) {
+            return term(((BooleanQuery.Term) query).term(), index, similarity);
+        } else if (query instanceof BooleanQuery.Phrase) {
+            return phrase(((BooleanQuery.Phrase) query).phrase(), index, similarity);
+        } else if (query instanceof BooleanQuery.Not) {
+            return new NotMatches(matches(((BooleanQuery.Not) query).clause(), index, similarity), index.numDocs());
+        }
+        BooleanQuery.Clauses clauses = (BooleanQuery.Clauses) query;
+        List<Matches> matches = new ArrayList<Matches>();
+        List<Matches> excluded = new ArrayList<Matches>();
+        for (BooleanQuery clause : clauses.clauses()) {
+            if (clauses.isConjunction() && clause instanceof BooleanQuery.Not) {
+                excluded.add(matches(((BooleanQuery.Not) clause).clause(), index, similarity));
+            } else {
+                matches.add(matches(clause, index, similarity));
+            }
+        }
+        if (!clauses.isConjunction()) {
+            return new DisjunctionMatches(matches.toArray(new Matches[matches.size()]));
+        }
+        if (matches.isEmpty()) {
+            matches.add(new AllMatches(index.numDocs()));
+        }
+        return new ConjunctionMatches(matches.toArray(new Matches[matches.size()]),
+                excluded.toArray(new Matches[excluded.size()]));
+    }
+
+    private static Matches term(String term, SegmentedIndex index, Similarity similarity) {
+        PostingsIterator postings = index.postings(term);
+        if (postings == null) {
+            return new DisjunctionMatches(new Matches[0]);
+        }
+        return new TermMatches(postings, similarity.idf(index.numDocs(), postings.cost()), similarity,
+                index.avgDocLength());
+    }
+
+    private static Matches phrase(PhraseQuery phrase, SegmentedIndex index, Similarity similarity) {
+        // one cursor per distinct term, the phrase refers to them by slot
+        Map<String, Integer> slots = new HashMap<String, Integer>();
+        List<Matches> terms = new ArrayList<Matches>();
+        int[] phraseSlots = new int[phrase.terms().size()];
+        double[] idfs = new double[phraseSlots.length];
+        for (int i = 0; i < phraseSlots.length; i++) {
+            String term = phrase.terms().get(i);
+            Integer slot = slots.get(term);
+            if (slot == null) {
+                slot = terms.size();
+                slots.put(term, slot);
+                terms.add(term(term, index, similarity));
+            }
+            phraseSlots[i] = slot;
+            if (terms.get(slot) instanceof TermMatches) {
+                idfs[i] = ((TermMatches) terms.get(slot)).idf;
+            }
+        }
+        Matches[] required = terms.toArray(new Matches[terms.size()]);
+        if (!index.hasPositions() || phraseSlots.length == 1) {
+            return new ConjunctionMatches(required, new Matches[0]);
+        }
+        return new PhraseMatches(required, phraseSlots, phrase.slop(), idfs, similarity, index.avgDocLength());
+    }
+
+    // The documents matching part of a query, in increasing doc id order
+    private abstract static class Matches {
+
+        int doc = -1;
+
+        abstract int nextDoc();
+
+        /**
+         * Moves to the first matching document whose id is at least target,
+         * which is greater than the current doc.
+         */
+        abstract int advance(int target);
+
+        abstract long cost();
+
+        /**
+         * Combines into score the scores of the terms matching the current
+         * document.
+         */
+        abstract double score(double score);
+    }
+
+    private static final class TermMatches extends Matches {
+
+        final PostingsIterator postings;
+        final double idf;
+        private final Similarity similarity;
+        private final double avgDocLength;
+
+        TermMatches(PostingsIterator postings, double idf, Similarity similarity, double avgDocLength) {
+            this.postings = postings;
+            this.idf = idf;
+            this.similarity = similarity;
+            this.avgDocLength = avgDocLength;
+        }
+
+        @Override
+        int nextDoc() {
+            return doc = postings.nextDoc();
+        }
+
+        @Override
+        int advance(int target) {
+            return doc = postings.advance(target);
+        }
+
+        @Override
+        long cost() {
+            return postings.cost();
+        }
+
+        @Override
+        double score(double score) {
+            return similarity.combine(score, similarity.termScore(idf, postings.freq(), postings.docLength(),
+                    avgDocLength));
+        }
+    }
+
+    // Every document of the index, what a conjunction of NOTs filters
+    private static final class AllMatches extends Matches {
+
+        private final int numDocs;
+
+        AllMatches(int numDocs) {
+            this.numDocs = numDocs;
+        }
+
+        @Override
+        int nextDoc() {
+            return doc == PostingsIterator.NO_MORE_DOCS ? doc : advance(doc + 1);
+        }
+
+        @Override
+        int advance(int target) {
+            return doc = target < numDocs ? target : PostingsIterator.NO_MORE_DOCS;
+        }
+
+        @Override
+        long cost() {
+            return numDocs;
+        }
+
+        @Override
+        double score(double score) {
+            return score;
+        }
+    }
+
+    private static class ConjunctionMatches extends Matches {
+
+        // in query order for scoring, and by cost for matching
+        private final Matches[] clauses;
+        private final Matches[] required;
+        private final Matches[] excluded;
+
+        ConjunctionMatches(Matches[] clauses, Matches[] excluded) {
+            this.clauses = clauses;
+            this.excluded = excluded;
+            required = clauses.clone();
+            Arrays.sort(required, new Comparator<Matches>() {
+                @Override
+                public int compare(Matches a, Matches b) {
+                    return Long.compare(a.cost(), b.cost());
+                }
+            });
+        }
+
+        @Override
+        int nextDoc() {
+            return doc = next(required[0].nextDoc());
+        }
+
+        @Override
+        int advance(int target) {
+            return doc = next(required[0].advance(target));
+        }
+
+        // The first document from d on that all clauses match
+        private int next(int d) {
+            while (d != PostingsIterator.NO_MORE_DOCS) {
+                int c = 1;
+                for (; c < required.length; c++) {
+                    int other = required[c].doc;
+                    if (other < d) {
+                        other = required[c].advance(d);
+                    }
+                    if (other > d) {
+                        break;
+                    }
+                }
+                if (c < required.length) {
+                    int target = required[c].doc;
+                    d = target == PostingsIterator.NO_MORE_DOCS ? target : required[0].advance(target);
+                } else if (accept(d)) {
+                    return d;
+                } else {
+                    d = required[0].nextDoc();
+                }
+            }
+            return d;
+        }
+
+        /**
+         * Whether a document all required clauses match is a match.
+         */
+        boolean accept(int d) {
+            for (Matches not : excluded) {
+                if (not.doc < d) {
+                    not.advance(d);
+                }
+                if (not.doc == d) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        long cost() {
+            return required[0].cost();
+        }
+
+        @Override
+        double score(double score) {
+            for (Matches clause : clauses) {
+                score = clause.score(score);
+            }
+            return score;
+        }
+    }
+
+    // A conjunction of the distinct terms of a phrase that merges their
+    // positions for the documents containing all of them
+    private static final class PhraseMatches extends ConjunctionMatches {
+
+        private final Matches[] terms;
+        private final int[] slots;
+        private final int slop;
+        private final double[] idfs;
+        private final Similarity similarity;
+        private final double avgDocLength;
+        private final int[][] positions;
+        private final int[] counts;
+        private double freq;
+
+        PhraseMatches(Matches[] terms, int[] slots, int slop, double[] idfs, Similarity similarity,
+                double avgDocLength) {
+            super(terms, new Matches[0]);
+            this.terms = terms;
+            this.slots = slots;
+            this.slop = slop;
+            this.idfs = idfs;
+            this.similarity = similarity;
+            this.avgDocLength = avgDocLength;
+            positions = new int[terms.length][16];
+            counts = new int[terms.length];
+        }
+
+        @Override
+        boolean accept(int d) {
+            // terms missing from the index match nothing, so all are terms here
+            for (int s = 0; s < terms.length; s++) {
+                PostingsIterator postings = ((TermMatches) terms[s]).postings;
+                int n = postings.freq();
+                if (n > positions[s].length) {
+                    positions[s] = new int[Math.max(n, 2 * positions[s].length)];
+                }
+                for (int j = 0; j < n; j++) {
+                    positions[s][j] = postings.nextPosition();
+                }
+                counts[s] = n;
+            }
+            freq = PhraseEvaluator.phraseFreq(positions, counts, slots, slop);
+            return freq > 0;
+        }
+
+        @Override
+        double score(double score) {
+            int docLength = ((TermMatches) terms[0]).postings.docLength();
+            return similarity.combine(score, similarity.phraseScore(idfs, freq, docLength, avgDocLength));
+        }
+    }
+
+    private static final class DisjunctionMatches extends Matches {
+
+        private final Matches[] clauses;
+
+        DisjunctionMatches(Matches[] clauses) {
+            this.clauses = clauses;
+        }
+
+        @Override
+        int nextDoc() {
+            int next = PostingsIterator.NO_MORE_DOCS;
+            for (Matches clause : clauses) {
+                next = Math.min(next, clause.doc == doc ? clause.nextDoc() : clause.doc);
+            }
+            return doc = next;
+        }
+
+        @Override
+        int advance(int target) {
+            int next = PostingsIterator.NO_MORE_DOCS;
+            for (Matches clause : clauses) {
+                next = Math.min(next, clause.doc < target ? clause.advance(target) : clause.doc);
+            }
+            return doc = next;
+        }
+
+        @Override
+        long cost() {
+            long cost = 0;
+            for (Matches clause : clauses) {
+                cost += clause.cost();
+            }
+            return cost;
+        }
+
+        @Override
+        double score(double score) {
+            for (Matches clause : clauses) {
+                if (clause.doc == doc) {
+                    score = clause.score(score);
+                }
+            }
+            return score;
+        }
+    }
+
+    // The documents a clause does not match
+    private static final class NotMatches extends Matches {
+
+        private final Matches clause;
+        private final int numDocs;
+
+        NotMatches(Matches clause, int numDocs) {
+            this.clause = clause;
+            this.numDocs = numDocs;
+        }
+
+        @Override
+        int nextDoc() {
+            return doc == PostingsIterator.NO_MORE_DOCS ? doc : advance(doc + 1);
+        }
+
+        @Override
+        int advance(int target) {
+            for (int d = target; d < numDocs; d++) {
+                if (clause.doc < d) {
+                    clause.advance(d);
+                }
+                if (clause.doc != d) {
+                    return doc = d;
+                }
+            }
+            return doc = PostingsIterator.NO_MORE_DOCS;
+        }
+
+        @Override
+        long cost() {
+            return numDocs;
+        }
+
+        @Override
+        double score(double score) {
+            return score;
+        }
+    }
+}
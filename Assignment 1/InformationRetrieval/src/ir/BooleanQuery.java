@@ -0,0 +1,278 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A query of the boolean language: words, quoted phrases, AND, OR, NOT and
+ * parentheses, pizza AND (hungry OR broke) NOT "pay it forward". NOT binds
+ * tightest, then AND, then OR; words and groups next to each other are
+ * ANDed. The operators must be in capitals, and the parser forgives what a
+ * query being typed lacks: missing closing parentheses, stray ones and
+ * operators without operands are ignored. A word the tokenizer splits into
+ * several terms needs all of them.
+ */
+public abstract class BooleanQuery {
+
+    // quoted phrases with their slop, parentheses, and runs of anything else
+    private static final Pattern LEXEME = Pattern.compile("\"[^\"]*\"(?:~\\d+)?|[()]|[^\\s()\"]+|\"");
+    private static final Pattern OPERATOR = Pattern.compile("(?:^|[\\s()])(?:AND|OR|NOT)(?=[\\s()\"]|$)");
+
+    private BooleanQuery() {
+    }
+
+    /**
+     * A word, one term of the index.
+     */
+    public static final class Term extends BooleanQuery {
+
+        private final String term;
+
+        Term(String term) {
+            this.term = term;
+        }
+
+        public String term() {
+            return term;
+        }
+
+        @Override
+        void terms(Set<String> terms) {
+            terms.add(term);
+        }
+
+        @Override
+        public String toString() {
+            return term;
+        }
+    }
+
+    /**
+     * A quoted phrase.
+     */
+    public static final class Phrase extends BooleanQuery {
+
+        private final PhraseQuery phrase;
+
+        Phrase(PhraseQuery phrase) {
+            this.phrase = phrase;
+        }
+
+        public PhraseQuery phrase() {
+            return phrase;
+        }
+
+        @Override
+        void terms(Set<String> terms) {
+            terms.addAll(phrase.terms());
+        }
+
+        @Override
+        public String toString() {
+            return phrase.toString();
+        }
+    }
+
+    /**
+     * Documents matching all clauses (conjunction) or any of them.
+     */
+    public static final class Clauses extends BooleanQuery {
+
+        private final boolean conjunction;
+        private final List<BooleanQuery> clauses;
+
+        Clauses(boolean conjunction, List<BooleanQuery> clauses) {
+            this.conjunction = conjunction;
+            this.clauses = Collections.unmodifiableList(clauses);
+        }
+
+        public boolean isConjunction() {
+            return conjunction;
+        }
+
+        public List<BooleanQuery> clauses() {
+            return clauses;
+        }
+
+        @Override
+        void terms(Set<String> terms) {
+            for (BooleanQuery clause : clauses) {
+                clause.terms(terms);
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder s = new StringBuilder("(");
+            for (BooleanQuery clause : clauses) {
+                s.append(s.length() > 1 ? (conjunction ? " AND " : " OR ") : "").append(clause);
+            }
+            return s.append(')').toString();
+        }
+    }
+
+    /**
+     * Documents not matching the clause.
+     */
+    public static final class Not extends BooleanQuery {
+
+        private final BooleanQuery clause;
+
+        Not(BooleanQuery clause) {
+            this.clause = clause;
+        }
+
+        public BooleanQuery clause() {
+            return clause;
+        }
+
+        @Override
+        void terms(Set<String> terms) {
+            // documents are not found for what they do not contain
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + clause;
+        }
+    }
+
+    /**
+     * The terms of the query that documents are found by, those under a
+     * NOT left out.
+     */
+    public Set<String> terms() {
+        Set<String> terms = new LinkedHashSet<String>();
+        terms(terms);
+        return terms;
+    }
+
+    abstract void terms(Set<String> terms);
+
+    /**
+     * Whether the query uses the boolean operators; other queries, even
+     * with parentheses, are ranked as bags of words.
+     */
+    public static boolean isBoolean(String query) {
+        return OPERATOR.matcher(query).find();
+    }
+
+    /**
+     * Parses the query, analyzing words and phrases with the tokenizer.
+     * Returns null if nothing of it can be searched.
+     */
+    public static BooleanQuery parse(String query, Tokenizer tokenizer) {
+        List<String> lexemes = new ArrayList<String>();
+        Matcher m = LEXEME.matcher(query);
+        while (m.find()) {
+            lexemes.add(m.group());
+        }
+        Parser parser = new Parser(lexemes, tokenizer);
+        BooleanQuery parsed = null;
+        while (parser.more()) {
+            // what follows a stray closing parenthesis is ANDed
+            BooleanQuery next = parser.or();
+            parsed = parsed == null ? next : next == null ? parsed : and(parsed, next);
+            parser.skip(")");
+        }
+        return parsed;
+    }
+
+    private static BooleanQuery and(BooleanQuery a, BooleanQuery b) {
+        List<BooleanQuery> clauses = new ArrayList<BooleanQuery>();
+        clauses.add(a);
+        clauses.add(b);
+        return new Clauses(true, clauses);
+    }
+
+    // Recursive descent over the lexemes, a method per precedence level.
+    // Every level returns null when it finds nothing to search.
+    private static final class Parser {
+
+        private final List<String> lexemes;
+        private final Tokenizer tokenizer;
+        private int next = 0;
+
+        Parser(List<String> lexemes, Tokenizer tokenizer) {
+            this.lexemes = lexemes;
+            this.tokenizer = tokenizer;
+        }
+
+        boolean more() {
+            return next < lexemes.size();
+        }
+
+        private boolean at(String lexeme) {
+            return more() && lexemes.get(next).equals(lexeme);
+        }
+
+        boolean skip(String lexeme) {
+            if (at(lexeme)) {
+                next++;
+                return true;
+            }
+            return false;
+        }
+
+        // or := and (OR and)*
+        BooleanQuery or() {
+            List<BooleanQuery> clauses = new ArrayList<BooleanQuery>();
+            do {
+                BooleanQuery clause = and();
+                if (clause != null) {
+                    clauses.add(clause);
+                }
+            } while (skip("OR"));
+            return clauses.isEmpty() ? null : clauses.size() == 1 ? clauses.get(0) : new Clauses(false, clauses);
+        }
+
+        // and := not ([AND] not)*
+        BooleanQuery and() {
+            List<BooleanQuery> clauses = new ArrayList<BooleanQuery>();
+            while (more() && !at("OR") && !at(")")) {
+                if (skip("AND")) {
+                    continue;
+                }
+                BooleanQuery clause = not();
+                if (clause != null) {
+                    clauses.add(clause);
+                }
+            }
+            return clauses.isEmpty() ? null : clauses.size() == 1 ? clauses.get(0) : new Clauses(true, clauses);
+        }
+
+        // not := NOT not | ( or ) | phrase | word
+        BooleanQuery not() {
+            if (skip("NOT")) {
+                if (!more() || at("OR") || at(")") || at("AND")) {
+                    return null;
+                }
+                BooleanQuery clause = not();
+                return clause == null ? null : new Not(clause);
+            }
+            if (skip("(")) {
+                BooleanQuery group = or();
+                skip(")");
+                return group;
+            }
+            String lexeme = lexemes.get(next++);
+            if (lexeme.startsWith("\"")) {
+                // an unbalanced quote is left out
+                List<PhraseQuery> phrases = PhraseQuery.parse(lexeme, tokenizer);
+                return phrases.isEmpty() ? null : new Phrase(phrases.get(0));
+            }
+            List<BooleanQuery> terms = new ArrayList<BooleanQuery>();
+            Iterator<String> tokens = tokenizer.tokens(lexeme);
+            while (tokens.hasNext()) {
+                terms.add(new Term(Analyzer.term(tokens.next())));
+            }
+            return terms.isEmpty() ? null : terms.size() == 1 ? terms.get(0) : new Clauses(true, terms);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ir;
+
+import java.util.TreeMap;
+
+/**
+ * Evaluates a query one document at a time: the postings of all query terms
+ * are walked together and each matching document is scored completely
+ * before moving to the next one, so no accumulators are needed.
+ */
+public class DocAtATimeEvaluator extends QueryEvaluator {
+
+    @Override
+    public TopDocs evaluate(SegmentedIndex index, TreeMap<String, Integer> queryMap, Similarity similarity, int k) {
+        int totalDocuments = index.numDocs();
+        double avgDocLength = index.avgDocLength();
+        double neutral = similarity.neutral();
+        PostingsIterator[] postings = new PostingsIterator[queryMap.size()];
+        double[] idfs = new double[queryMap.size()];
+        int n = 0;
+        for (String key : queryMap.keySet()) {
+            PostingsIterator cursor = index.postings(key);
+            if (cursor != null) {
+                idfs[n] = similarity.idf(totalDocuments, cursor.cost());
+                cursor.nextDoc();
+                postings[n++] = cursor;
+            }
+        }
+
+        TopKSelector selector = new TopKSelector(k);
+        int remaining = k;
+        int next = 0;
+        while (true) {
+            int doc = PostingsIterator.NO_MORE_DOCS;
+            for (int t = 0; t < n; t++) {
+                doc = Math.min(doc, postings[t].docId());
+            }
+            if (doc == PostingsIterator.NO_MORE_DOCS) {
+                break;
+            }
+            // terms are combined in query term order, like the other evaluators
+            double score = neutral;
+            for (int t = 0; t < n; t++) {
+                if (postings[t].docId() == doc) {
+                    score = similarity.combine(score, similarity.termScore(idfs[t],
+                            postings[t].freq(), postings[t].docLength(), avgDocLength));
+                    postings[t].nextDoc();
+                }
+            }
+            remaining = collectUnmatched(selector, next, doc, remaining, neutral);
+            selector.collect(doc, score);
+            next = doc + 1;
+        }
+        collectUnmatched(selector, next, totalDocuments, remaining, neutral);
+        return selector.topDocs();
+    }
+}
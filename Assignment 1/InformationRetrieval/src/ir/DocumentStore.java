@@ -0,0 +1,367 @@
+package ir;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The text of the documents of a segment, saved next to the segment file
+ * by IndexWriter. X.fdt holds the UTF-8 text of the documents, X.fdx where
+ * every document is in X.fdt, so a document is found by its id with one
+ * lookup. Both files are memory mapped.
+ *
+ * Stores are written compressed: consecutive documents are packed into
+ * blocks of about BLOCK_SIZE bytes and every block is compressed with
+ * LzCodec. Fetching a document decompresses its block; the most recently
+ * used blocks (-Dir.blockCache per segment) are kept decompressed, so
+ * fetching neighbouring documents again costs no decompression. Uncompressed
+ * stores (VERSION_RAW) decode only the bytes of the document itself.
+ */
+public class DocumentStore {
+
+    static final int MAGIC = 0x49524453; // "IRDS"
+    static final int VERSION_RAW = 1;
+    static final int VERSION_COMPRESSED = 2;
+
+    static final int BLOCK_SIZE = 16 * 1024;
+    private static final int CACHED_BLOCKS = Integer.getInteger("ir.blockCache", 16);
+
+    private static final int DATA_HEADER = 8;
+    private static final int OFFSETS_HEADER = 12;
+    private static final int BLOCKS_HEADER = 16;
+
+    private final MappedByteBuffer data;
+    private final MappedByteBuffer offsets;
+    private final int version;
+    private final int numDocs;
+    // compressed stores: positions in offsets of the block tables
+    private final int numBlocks;
+    private final int firstDocs;
+    private final int blockLengths;
+    private final int docStarts;
+    private final LinkedHashMap<Integer, byte[]> cache;
+
+    private DocumentStore(MappedByteBuffer data, MappedByteBuffer offsets, final int cachedBlocks) throws IOException {
+        this.data = data;
+        this.offsets = offsets;
+        version = data.getInt(4);
+        if (data.getInt(0) != MAGIC || offsets.getInt(0) != MAGIC || offsets.getInt(4) != version
+                || (version != VERSION_RAW && version != VERSION_COMPRESSED)) {
+            throw new IOException("Not a document store");
+        }
+        numDocs = offsets.getInt(8);
+        if (version == VERSION_COMPRESSED) {
+            numBlocks = offsets.getInt(12);
+            firstDocs = BLOCKS_HEADER + 8 * (numBlocks + 1);
+            blockLengths = firstDocs + 4 * (numBlocks + 1);
+            docStarts = blockLengths + 4 * numBlocks;
+        } else {
+            numBlocks = 0;
+            firstDocs = 0;
+            blockLengths = 0;
+            docStarts = 0;
+        }
+        cache = new LinkedHashMap<Integer, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+                return size() > cachedBlocks;
+            }
+        };
+    }
+
+    static File dataFile(File segment) {
+        return sibling(segment, ".fdt");
+    }
+
+    static File offsetsFile(File segment) {
+        return sibling(segment, ".fdx");
+    }
+
+    private static File sibling(File segment, String suffix) {
+        String name = segment.getName();
+        int dot = name.lastIndexOf('.');
+        return new File(segment.getParentFile(), (dot < 0 ? name : name.substring(0, dot)) + suffix);
+    }
+
+    /**
+     * Saves the documents of the segment compressed: document doc is
+     * bytes[starts[doc], starts[doc + 1]).
+     */
+    static void write(File segment, byte[] bytes, int[] starts, int numDocs) throws IOException {
+        write(segment, bytes, starts, numDocs, true);
+    }
+
+    static void write(File segment, byte[] bytes, int[] starts, int numDocs, boolean compress) throws IOException {
+        Writer writer = new Writer(segment, compress);
+        try {
+            for (int doc = 0; doc < numDocs; doc++) {
+                writer.add(ByteBuffer.wrap(bytes, starts[doc], starts[doc + 1] - starts[doc]));
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Saves the documents of a segment as they are added, holding no more
+     * than the block being filled and the tables of X.fdx.
+     *
+     * X.fdt: the compressed blocks one after the other. X.fdx: the number of
+     * documents and blocks, the offset of every block in X.fdt and of the
+     * end, the first document of every block and numDocs, the uncompressed
+     * length of every block, and the start of every document in its block.
+     * Uncompressed stores have the documents one after the other in X.fdt and
+     * the offset of every document and of the end in X.fdx.
+     */
+    static final class Writer {
+
+        private final File segment;
+        private final boolean compress;
+        private final DataOutputStream data;
+        private long offset = DATA_HEADER;
+        private int numDocs = 0;
+        // raw: offset of every document; compressed: offset of every block
+        private long[] offsets = new long[64];
+        // compressed: first document and length of every block, and the
+        // start of every document in its block
+        private int numBlocks = 0;
+        private int[] firstDocs = new int[64];
+        private int[] blockLengths = new int[64];
+        private int[] docStarts = new int[64];
+        private byte[] block = new byte[2 * BLOCK_SIZE];
+        private int blockLength = 0;
+        private byte[] compressed = new byte[LzCodec.maxCompressedLength(BLOCK_SIZE)];
+
+        Writer(File segment, boolean compress) throws IOException {
+            this.segment = segment;
+            this.compress = compress;
+            data = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile(segment))));
+            data.writeInt(MAGIC);
+            data.writeInt(compress ? VERSION_COMPRESSED : VERSION_RAW);
+        }
+
+        void add(ByteBuffer document) throws IOException {
+            int length = document.remaining();
+            if (!compress) {
+                if (numDocs == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, numDocs * 2);
+                }
+                offsets[numDocs++] = offset;
+                if (document.hasArray()) {
+                    data.write(document.array(), document.arrayOffset() + document.position(), length);
+                } else {
+                    byte[] bytes = new byte[length];
+                    document.get(bytes);
+                    data.write(bytes);
+                }
+                offset += length;
+                return;
+            }
+            // a block ends with the document that brings it to BLOCK_SIZE, so
+            // a document is never split and a long one gets a block of its own
+            if (blockLength >= BLOCK_SIZE) {
+                flushBlock();
+            }
+            if (length > block.length - blockLength) {
+                block = Arrays.copyOf(block, Math.max(blockLength + length, block.length * 2));
+            }
+            document.get(block, blockLength, length);
+            if (numDocs == docStarts.length) {
+                docStarts = Arrays.copyOf(docStarts, numDocs * 2);
+            }
+            docStarts[numDocs++] = blockLength;
+            blockLength += length;
+        }
+
+        private void flushBlock() throws IOException {
+            if (compressed.length < LzCodec.maxCompressedLength(blockLength)) {
+                compressed = new byte[LzCodec.maxCompressedLength(blockLength)];
+            }
+            int compressedLength = LzCodec.compress(block, 0, blockLength, compressed);
+            data.write(compressed, 0, compressedLength);
+            if (numBlocks + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            if (numBlocks == blockLengths.length) {
+                blockLengths = Arrays.copyOf(blockLengths, numBlocks * 2);
+            }
+            if (numBlocks + 1 == firstDocs.length) {
+                firstDocs = Arrays.copyOf(firstDocs, firstDocs.length * 2);
+            }
+            offsets[numBlocks] = offset;
+            blockLengths[numBlocks++] = blockLength;
+            // firstDocs[0] is 0, every later block starts after the last one
+            firstDocs[numBlocks] = numDocs;
+            offset += compressedLength;
+            blockLength = 0;
+            if (block.length > 2 * BLOCK_SIZE) {
+                // a long document had the block grown, do not keep it
+                block = new byte[2 * BLOCK_SIZE];
+            }
+        }
+
+        void close() throws IOException {
+            try {
+                if (compress && numDocs > firstDocs[numBlocks]) {
+                    flushBlock();
+                }
+            } finally {
+                data.close();
+            }
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(offsetsFile(segment))));
+            try {
+                out.writeInt(MAGIC);
+                if (!compress) {
+                    out.writeInt(VERSION_RAW);
+                    out.writeInt(numDocs);
+                    for (int doc = 0; doc < numDocs; doc++) {
+                        out.writeLong(offsets[doc]);
+                    }
+                    out.writeLong(offset);
+                    return;
+                }
+                out.writeInt(VERSION_COMPRESSED);
+                out.writeInt(numDocs);
+                out.writeInt(numBlocks);
+                for (int b = 0; b < numBlocks; b++) {
+                    out.writeLong(offsets[b]);
+                }
+                out.writeLong(offset);
+                for (int b = 0; b <= numBlocks; b++) {
+                    out.writeInt(firstDocs[b]);
+                }
+                for (int b = 0; b < numBlocks; b++) {
+                    out.writeInt(blockLengths[b]);
+                }
+                for (int doc = 0; doc < numDocs; doc++) {
+                    out.writeInt(docStarts[doc]);
+                }
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Opens the document store of the segment.
+     */
+    static DocumentStore open(File segment) throws IOException {
+        return open(segment, CACHED_BLOCKS);
+    }
+
+    /**
+     * Opens the document store of the segment keeping up to cachedBlocks
+     * blocks decompressed.
+     */
+    static DocumentStore open(File segment, int cachedBlocks) throws IOException {
+        return new DocumentStore(map(dataFile(segment)), map(offsetsFile(segment)), cachedBlocks);
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            raf.close();
+        }
+    }
+
+    public int numDocs() {
+        return numDocs;
+    }
+
+    /**
+     * Whether the documents are stored in compressed blocks.
+     */
+    public boolean compressed() {
+        return version == VERSION_COMPRESSED;
+    }
+
+    /**
+     * The text of the document.
+     */
+    public String document(int doc) {
+        ByteBuffer bytes = bytes(doc);
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+
+    /**
+     * The UTF-8 text of the document, a view of the mapping or of its
+     * decompressed block.
+     */
+    ByteBuffer bytes(int doc) {
+        if (doc < 0 || doc >= numDocs) {
+            throw new IndexOutOfBoundsException("No document " + doc);
+        }
+        if (version == VERSION_RAW) {
+            int start = (int) offsets.getLong(OFFSETS_HEADER + 8 * doc);
+            int end = (int) offsets.getLong(OFFSETS_HEADER + 8 * (doc + 1));
+            ByteBuffer bytes = data.duplicate();
+            bytes.position(start);
+            bytes.limit(end);
+            return bytes.slice();
+        }
+        int block = blockOf(doc);
+        byte[] text = block(block);
+        int start = offsets.getInt(docStarts + 4 * doc);
+        int end = doc + 1 < offsets.getInt(firstDocs + 4 * (block + 1))
+                ? offsets.getInt(docStarts + 4 * (doc + 1)) : text.length;
+        return ByteBuffer.wrap(text, start, end - start).slice();
+    }
+
+    // Block holding the document, by binary search of the first documents
+    private int blockOf(int doc) {
+        int lo = 0;
+        int hi = numBlocks - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (offsets.getInt(firstDocs + 4 * mid) <= doc) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    // The decompressed block, from the cache if it was used recently
+    private byte[] block(int block) {
+        synchronized (cache) {
+            byte[] text = cache.get(block);
+            if (text != null) {
+                return text;
+            }
+        }
+        // decompressed outside the lock, two threads may both do it
+        int start = (int) offsets.getLong(BLOCKS_HEADER + 8 * block);
+        byte[] compressed = new byte[(int) offsets.getLong(BLOCKS_HEADER + 8 * (block + 1)) - start];
+        ByteBuffer mapped = data.duplicate();
+        mapped.position(start);
+        mapped.get(compressed);
+        byte[] text = new byte[offsets.getInt(blockLengths + 4 * block)];
+        LzCodec.decompress(compressed, 0, compressed.length, text);
+        synchronized (cache) {
+            cache.put(block, text);
+        }
+        return text;
+    }
+
+    /**
+     * Size of the two files in bytes.
+     */
+    long sizeInBytes() {
+        return data.capacity() + offsets.capacity();
+    }
+}
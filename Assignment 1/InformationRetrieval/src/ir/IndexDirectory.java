@@ -0,0 +1,301 @@
+package ir;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The directory holding the segments of the index and the "segments" file
+ * listing the live ones. New documents are flushed into a new small segment
+ * instead of rebuilding the index; a background thread merges small segments
+ * following the merge policy.
+ */
+public class IndexDirectory {
+
+    private static final String MANIFEST = "segments";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final File dir;
+    private final TieredMergePolicy mergePolicy;
+    private Tokenizer tokenizer;
+    private boolean positions;
+    private volatile SegmentedIndex current;
+    private int nextSegment;
+    private Thread merger;
+    private boolean closed = false;
+
+    private IndexDirectory(File dir, TieredMergePolicy mergePolicy) {
+        this.dir = dir;
+        this.mergePolicy = mergePolicy;
+    }
+
+    /**
+     * Opens the index in dir, creating an empty one split with the PTB
+     * tokenizer if there is none yet.
+     */
+    public static IndexDirectory open(File dir) throws IOException {
+        return open(dir, Tokenizer.PTB);
+    }
+
+    /**
+     * Opens the index in dir, creating an empty one split with tokenizer if
+     * there is none yet. An existing index keeps the tokenizer it was built
+     * with.
+     */
+    public static IndexDirectory open(File dir, Tokenizer tokenizer) throws IOException {
+        return open(dir, tokenizer, false);
+    }
+
+    /**
+     * Opens the index in dir, creating an empty one split with tokenizer,
+     * that stores the positions of the terms if positions is set, if there
+     * is none yet. An existing index keeps the tokenizer and the choice of
+     * positions it was built with.
+     */
+    public static IndexDirectory open(File dir, Tokenizer tokenizer, boolean positions) throws IOException {
+        return open(dir, tokenizer, positions, new TieredMergePolicy());
+    }
+
+    public static IndexDirectory open(File dir, Tokenizer tokenizer, boolean positions, TieredMergePolicy mergePolicy) throws IOException {
+        IndexDirectory directory = new IndexDirectory(dir, mergePolicy);
+        directory.tokenizer = tokenizer;
+        directory.positions = positions;
+        File manifest = new File(dir, MANIFEST);
+        List<String> names = new ArrayList<String>();
+        List<IndexReader> segments = new ArrayList<IndexReader>();
+        long generation = 0;
+        if (manifest.exists()) {
+            boolean readable = true;
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(manifest)));
+            try {
+                generation = in.readLong();
+                directory.nextSegment = in.readInt();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    names.add(in.readUTF());
+                }
+                directory.tokenizer = Tokenizer.forName(in.readUTF());
+                directory.positions = in.readBoolean();
+            } catch (EOFException ex) {
+                // written before the tokenizer and positions were recorded
+                readable = false;
+            } finally {
+                in.close();
+            }
+            for (String name : names) {
+                readable &= IndexReader.isCurrentFormat(new File(dir, name + SEGMENT_SUFFIX));
+            }
+            if (readable) {
+                for (String name : names) {
+                    segments.add(IndexReader.open(new File(dir, name + SEGMENT_SUFFIX)));
+                }
+            } else {
+                // segments of an older format cannot be read, start over so
+                // the next update rebuilds the index from the documents
+                Logger.getLogger(IndexDirectory.class.getName()).log(Level.WARNING,
+                        "The index in {0} has an outdated format and is rebuilt", dir);
+                for (String name : names) {
+                    delete(new File(dir, name + SEGMENT_SUFFIX));
+                }
+                if (!manifest.delete()) {
+                    throw new IOException("Cannot delete the outdated index " + manifest);
+                }
+                names.clear();
+                generation = 0;
+                directory.tokenizer = tokenizer;
+                directory.positions = positions;
+            }
+        } else if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create index directory " + dir);
+        }
+        directory.current = new SegmentedIndex(generation, directory.tokenizer, names, segments);
+        return directory;
+    }
+
+    /**
+     * The tokenizer the index is built with.
+     */
+    public Tokenizer tokenizer() {
+        return tokenizer;
+    }
+
+    /**
+     * Whether new segments store the positions of the terms.
+     */
+    public boolean positions() {
+        return positions;
+    }
+
+    /**
+     * The latest published view of the index.
+     */
+    public SegmentedIndex current() {
+        return current;
+    }
+
+    /**
+     * Saves the documents of the writer as a new segment and publishes it.
+     */
+    public void flush(IndexWriter writer) throws IOException {
+        if (writer.numDocs() == 0) {
+            return;
+        }
+        String name = newSegmentName();
+        writer.write(new File(dir, name + SEGMENT_SUFFIX));
+        IndexReader segment = IndexReader.open(new File(dir, name + SEGMENT_SUFFIX));
+        synchronized (this) {
+            SegmentedIndex index = current;
+            List<String> names = new ArrayList<String>();
+            List<IndexReader> segments = new ArrayList<IndexReader>();
+            for (int i = 0; i < index.numSegments(); i++) {
+                names.add(index.segmentName(i));
+                segments.add(index.segment(i));
+            }
+            names.add(name);
+            segments.add(segment);
+            publish(names, segments);
+            notifyAll();
+        }
+    }
+
+    private synchronized String newSegmentName() {
+        return "_" + Integer.toString(nextSegment++, Character.MAX_RADIX);
+    }
+
+    // Writes the manifest for the new list of segments, then makes it visible
+    private void publish(List<String> names, List<IndexReader> segments) throws IOException {
+        long generation = current.generation() + 1;
+        File temp = new File(dir, MANIFEST + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeLong(generation);
+            out.writeInt(nextSegment);
+            out.writeInt(names.size());
+            for (String name : names) {
+                out.writeUTF(name);
+            }
+            out.writeUTF(tokenizer.name());
+            out.writeBoolean(positions);
+        } finally {
+            out.close();
+        }
+        Files.move(temp.toPath(), new File(dir, MANIFEST).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        current = new SegmentedIndex(generation, tokenizer, names, segments);
+    }
+
+    /**
+     * Starts the background thread merging segments.
+     */
+    public synchronized void startMerger() {
+        if (merger != null) {
+            return;
+        }
+        merger = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    mergeLoop();
+                } catch (InterruptedException ex) {
+                    // closing
+                } catch (IOException ex) {
+                    Logger.getLogger(IndexDirectory.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+        }, "segment-merger");
+        merger.setDaemon(true);
+        merger.start();
+        notifyAll();
+    }
+
+    private void mergeLoop() throws InterruptedException, IOException {
+        while (true) {
+            SegmentedIndex index;
+            int[] merge = null;
+            synchronized (this) {
+                while (!closed && (merge = mergePolicy.findMerge(segmentDocs(current))) == null) {
+                    wait();
+                }
+                if (closed) {
+                    return;
+                }
+                index = current;
+            }
+            merge(index, merge[0], merge[1]);
+        }
+    }
+
+    private static int[] segmentDocs(SegmentedIndex index) {
+        int[] docs = new int[index.numSegments()];
+        for (int i = 0; i < docs.length; i++) {
+            docs[i] = index.segment(i).numDocs();
+        }
+        return docs;
+    }
+
+    // Merges segments [from, to) of the view into one segment and replaces
+    // them with it. Flushes only append segments, so the merged ones are still
+    // at the same position when the result is published.
+    private void merge(SegmentedIndex index, int from, int to) throws IOException {
+        boolean mergedPositions = true;
+        for (int i = from; i < to; i++) {
+            mergedPositions &= index.segment(i).hasPositions();
+        }
+        IndexWriter writer = new IndexWriter(new TermDictionary(), mergedPositions);
+        for (int i = from; i < to; i++) {
+            writer.addSegment(index.segment(i));
+        }
+        String name = newSegmentName();
+        writer.write(new File(dir, name + SEGMENT_SUFFIX));
+        IndexReader merged = IndexReader.open(new File(dir, name + SEGMENT_SUFFIX));
+        synchronized (this) {
+            SegmentedIndex latest = current;
+            List<String> names = new ArrayList<String>();
+            List<IndexReader> segments = new ArrayList<IndexReader>();
+            for (int i = 0; i < latest.numSegments(); i++) {
+                if (i == from) {
+                    names.add(name);
+                    segments.add(merged);
+                } else if (i < from || i >= to) {
+                    names.add(latest.segmentName(i));
+                    segments.add(latest.segment(i));
+                }
+            }
+            publish(names, segments);
+        }
+        for (int i = from; i < to; i++) {
+            delete(new File(dir, index.segmentName(i) + SEGMENT_SUFFIX));
+        }
+    }
+
+    // Deletes a segment with its document store. It may still be mapped by
+    // older views; on systems that refuse to delete mapped files it goes away
+    // when the JVM exits.
+    private static void delete(File file) {
+        for (File f : new File[]{file, DocumentStore.dataFile(file), DocumentStore.offsetsFile(file)}) {
+            if (!f.delete()) {
+                f.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Stops the merge thread after the merge in progress, if any.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+}
@@ -0,0 +1,263 @@
+package ir;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only view of a segment saved by IndexWriter. The file is memory
+ * mapped, only the term dictionary and the request ids are decoded onto the
+ * heap; postings and document lengths are read straight from the mapping
+ * while a query walks them, as are positions on segments that have them,
+ * and document texts from the mapped document store. Postings skip ahead
+ * with the skip entries of the segment when advanced far enough.
+ */
+public class IndexReader {
+
+    private final MappedByteBuffer buffer;
+    private final DocumentStore documents;
+    private final int numDocs;
+    private final long sumDocLength;
+    private final boolean positions;
+    private final int docLengthsOffset;
+    private final String[] requestIds;
+    private final String[] terms;
+    private final int[] docFreqs;
+    private final int[] maxFreqs;
+    private final int[] offsets;
+    private final int[] skipOffsets;
+    private final int[] positionsOffsets;
+    // lower cased words of the documents and their document frequencies,
+    // for completing what is being typed
+    private volatile String[] words;
+    private volatile TermCompleter wordCompleter;
+
+    private IndexReader(MappedByteBuffer buffer, DocumentStore documents) throws IOException {
+        this.buffer = buffer;
+        this.documents = documents;
+        if (buffer.getInt(0) != IndexWriter.MAGIC) {
+            throw new IOException("Not an index file");
+        } else if (buffer.getInt(4) != IndexWriter.VERSION) {
+            throw new IOException("Index format " + buffer.getInt(4) + " cannot be read, only format "
+                    + IndexWriter.VERSION + "; delete the index to have it rebuilt");
+        }
+        numDocs = buffer.getInt(8);
+        int numTerms = buffer.getInt(12);
+        sumDocLength = buffer.getLong(16);
+        positions = (buffer.getInt(24) & IndexWriter.FLAG_POSITIONS) != 0;
+        terms = new String[numTerms];
+        docFreqs = new int[numTerms];
+        maxFreqs = new int[numTerms];
+        offsets = new int[numTerms];
+        skipOffsets = new int[numTerms];
+        positionsOffsets = positions ? new int[numTerms] : null;
+
+        docLengthsOffset = (int) buffer.getLong(buffer.limit() - 24);
+        ByteBuffer in = buffer.duplicate();
+        in.position((int) buffer.getLong(buffer.limit() - 16));
+        requestIds = new String[numDocs];
+        for (int doc = 0; doc < numDocs; doc++) {
+            requestIds[doc] = readString(in);
+        }
+
+        in.position((int) buffer.getLong(buffer.limit() - 8));
+        int offset = 0;
+        int skipOffset = 0;
+        int positionsOffset = 0;
+        for (int t = 0; t < numTerms; t++) {
+            terms[t] = readString(in);
+            docFreqs[t] = VarInt.readVInt(in);
+            maxFreqs[t] = VarInt.readVInt(in);
+            offset += (int) VarInt.readVLong(in);
+            offsets[t] = offset;
+            skipOffset += (int) VarInt.readVLong(in);
+            skipOffsets[t] = skipOffset;
+            if (positions) {
+                positionsOffset += (int) VarInt.readVLong(in);
+                positionsOffsets[t] = positionsOffset;
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[VarInt.readVInt(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Whether the file is a segment in the format this version writes, which
+     * is the only one it reads.
+     */
+    static boolean isCurrentFormat(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            return in.readInt() == IndexWriter.MAGIC && in.readInt() == IndexWriter.VERSION;
+        } catch (EOFException ex) {
+            return false;
+        } finally {
+            in.close();
+        }
+    }
+
+    public static IndexReader open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            // the mapping stays valid after the channel is closed
+            return new IndexReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), DocumentStore.open(file));
+        } finally {
+            raf.close();
+        }
+    }
+
+    public int numDocs() {
+        return numDocs;
+    }
+
+    public int numTerms() {
+        return terms.length;
+    }
+
+    /**
+     * Whether the postings hold the positions and offsets of the terms.
+     */
+    public boolean hasPositions() {
+        return positions;
+    }
+
+    /**
+     * Number of documents containing the term, 0 if it is not in the index.
+     */
+    public int docFreq(String term) {
+        int t = Arrays.binarySearch(terms, term);
+        return t < 0 ? 0 : docFreqs[t];
+    }
+
+    /**
+     * Highest frequency of the term in any document, 0 if it is not in the
+     * index.
+     */
+    public int maxFreq(String term) {
+        int t = Arrays.binarySearch(terms, term);
+        return t < 0 ? 0 : maxFreqs[t];
+    }
+
+    /**
+     * Number of tokens of the document.
+     */
+    public int docLength(int doc) {
+        return buffer.getInt(docLengthsOffset + 4 * doc);
+    }
+
+    /**
+     * Number of tokens of all documents together.
+     */
+    public long sumDocLength() {
+        return sumDocLength;
+    }
+
+    /**
+     * Postings of the term, or null if it is not in the index.
+     */
+    public PostingsIterator postings(String term) {
+        int t = Arrays.binarySearch(terms, term);
+        return t < 0 ? null : postings(t);
+    }
+
+    String term(int t) {
+        return terms[t];
+    }
+
+    /**
+     * The at most k words of the documents starting with prefix that occur
+     * in the most documents, most frequent first. Words are the lower cased
+     * tokens of the tokenizer; unlike terms, a prefix of a word is a prefix of
+     * its completions. The words are collected from the stored documents the
+     * first time.
+     */
+    public List<String> wordCompletions(String prefix, int k, Tokenizer tokenizer) {
+        TermCompleter c = wordCompleter;
+        if (c == null) {
+            synchronized (this) {
+                if (wordCompleter == null) {
+                    collectWords(tokenizer);
+                }
+                c = wordCompleter;
+            }
+        }
+        List<String> completions = new ArrayList<String>(k);
+        for (int w : c.complete(prefix, k)) {
+            completions.add(words[w]);
+        }
+        return completions;
+    }
+
+    private void collectWords(Tokenizer tokenizer) {
+        // document frequency and last document of every word
+        Map<String, int[]> counts = new HashMap<String, int[]>();
+        for (int doc = 0; doc < numDocs; doc++) {
+            Iterator<String> tokens = tokenizer.tokens(documents.document(doc));
+            while (tokens.hasNext()) {
+                String word = tokens.next().toLowerCase();
+                int[] count = counts.get(word);
+                if (count == null) {
+                    counts.put(word, new int[]{1, doc});
+                } else if (count[1] != doc) {
+                    count[0]++;
+                    count[1] = doc;
+                }
+            }
+        }
+        String[] sorted = counts.keySet().toArray(new String[counts.size()]);
+        Arrays.sort(sorted);
+        int[] wordFreqs = new int[sorted.length];
+        for (int w = 0; w < sorted.length; w++) {
+            wordFreqs[w] = counts.get(sorted[w])[0];
+        }
+        words = sorted;
+        wordCompleter = new TermCompleter(sorted, wordFreqs);
+    }
+
+    PostingsIterator postings(int t) {
+        ByteBuffer in = buffer.duplicate();
+        in.position(offsets[t]);
+        ByteBuffer positionsIn = null;
+        if (positions) {
+            positionsIn = buffer.duplicate();
+            positionsIn.position(positionsOffsets[t]);
+        }
+        return new MappedPostingsIterator(this, in, positionsIn, docFreqs[t], buffer, skipOffsets[t]);
+    }
+
+    /**
+     * Id of the request (t3_...) the document was built from.
+     */
+    public String requestId(int doc) {
+        return requestIds[doc];
+    }
+
+    /**
+     * Text of the document.
+     */
+    public String document(int doc) {
+        return documents.document(doc);
+    }
+
+    ByteBuffer documentBytes(int doc) {
+        return documents.bytes(doc);
+    }
+}
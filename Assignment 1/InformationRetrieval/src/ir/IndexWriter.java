@@ -0,0 +1,445 @@
+package ir;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Builds one segment of the inverted index (term dictionary with document
+ * frequencies and postings holding the term frequency per document) and
+ * saves it to disk, together with the text of the documents. Documents are
+ * numbered in the order they are added, starting at 0, and keep the request
+ * id they were added with. A writer created with positions also keeps the
+ * position and character offsets of every occurrence of every term.
+ */
+public class IndexWriter {
+
+    static final int MAGIC = 0x49524958; // "IRIX"
+    static final int VERSION = 6;
+    static final int FLAG_POSITIONS = 1;
+    // documents between two skip entries of a posting list
+    static final int SKIP_INTERVAL = 128;
+
+    // Postings of a single term while the index is being built
+    private static class PostingList {
+
+        int[] docIds = new int[4];
+        int[] freqs = new int[4];
+        int size = 0;
+        // position, start and end offset of every occurrence in doc order,
+        // null if the writer keeps no positions
+        int[] occurrences;
+        int occurrencesSize = 0;
+
+        PostingList(boolean positions) {
+            occurrences = positions ? new int[12] : null;
+        }
+
+        void add(int docId, int freq) {
+            if (size == docIds.length) {
+                docIds = Arrays.copyOf(docIds, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docIds[size] = docId;
+            freqs[size] = freq;
+            size++;
+        }
+
+        void addOccurrence(int position, int startOffset, int endOffset) {
+            if (occurrencesSize + 3 > occurrences.length) {
+                occurrences = Arrays.copyOf(occurrences, occurrences.length * 2);
+            }
+            occurrences[occurrencesSize++] = position;
+            occurrences[occurrencesSize++] = startOffset;
+            occurrences[occurrencesSize++] = endOffset;
+        }
+    }
+
+    private final TermDictionary dictionary;
+    private final boolean positions;
+    // postings by term id, null for terms of the dictionary this writer
+    // has not seen
+    private PostingList[] postings = new PostingList[64];
+    private int numTerms = 0;
+    private final ArrayList<String> requestIds = new ArrayList<String>();
+    private int[] docLengths = new int[64];
+    private int numDocs = 0;
+    // UTF-8 text of the documents added or appended, the i-th of them is
+    // stored[storedStarts[i], storedStarts[i + 1])
+    private byte[] stored = new byte[4096];
+    private int[] storedStarts = new int[65];
+    private int numStored = 0;
+    // where the text of the documents comes from in doc id order: runs of
+    // stored documents (null) and segments added whole, whose text is only
+    // copied when the writer is written
+    private final ArrayList<IndexReader> storedSources = new ArrayList<IndexReader>();
+    private final ArrayList<Integer> storedRuns = new ArrayList<Integer>();
+
+    public IndexWriter() {
+        this(new TermDictionary());
+    }
+
+    /**
+     * Creates a writer whose term ids come from the given dictionary, which
+     * may be shared with other writers of the same build.
+     */
+    public IndexWriter(TermDictionary dictionary) {
+        this(dictionary, false);
+    }
+
+    /**
+     * Creates a writer sharing the dictionary that keeps the positions of
+     * the terms if positions is set.
+     */
+    public IndexWriter(TermDictionary dictionary, boolean positions) {
+        this.dictionary = dictionary;
+        this.positions = positions;
+    }
+
+    /**
+     * Whether the segment will have positions.
+     */
+    public boolean hasPositions() {
+        return positions;
+    }
+
+    public TermDictionary dictionary() {
+        return dictionary;
+    }
+
+    private PostingList postingList(int termId) {
+        if (termId >= postings.length) {
+            postings = Arrays.copyOf(postings, Math.max(termId + 1, postings.length * 2));
+        }
+        PostingList list = postings[termId];
+        if (list == null) {
+            list = new PostingList(positions);
+            postings[termId] = list;
+            numTerms++;
+        }
+        return list;
+    }
+
+    private void addDocLength(int docId, int length) {
+        if (docId == docLengths.length) {
+            docLengths = Arrays.copyOf(docLengths, docId * 2);
+        }
+        docLengths[docId] = length;
+    }
+
+    // Stores the bytes as the text of the next document
+    private void addStored(ByteBuffer bytes) {
+        if (numStored + 1 == storedStarts.length) {
+            storedStarts = Arrays.copyOf(storedStarts, storedStarts.length * 2);
+        }
+        int start = storedStarts[numStored];
+        if (bytes.remaining() > Integer.MAX_VALUE - 8 - start) {
+            throw new IllegalStateException("The text of the documents exceeds 2 GB, flush them in smaller segments");
+        }
+        int end = start + bytes.remaining();
+        if (end > stored.length) {
+            stored = Arrays.copyOf(stored, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(end, 2L * stored.length)));
+        }
+        bytes.get(stored, start, bytes.remaining());
+        storedStarts[++numStored] = end;
+        addRun(null, 1);
+    }
+
+    private void addRun(IndexReader source, int count) {
+        int last = storedSources.size() - 1;
+        if (source == null && last >= 0 && storedSources.get(last) == null) {
+            storedRuns.set(last, storedRuns.get(last) + count);
+        } else {
+            storedSources.add(source);
+            storedRuns.add(count);
+        }
+    }
+
+    /**
+     * Adds a document given as its text and term vector and returns the id it
+     * was given. The vector must use the term ids of this writer's
+     * dictionary, and have positions if the writer keeps them.
+     */
+    public int addDocument(String requestId, CharSequence text, TermVector vector) {
+        if (positions && !vector.hasPositions()) {
+            throw new IllegalArgumentException("The term vector has no positions");
+        }
+        int docId = numDocs++;
+        requestIds.add(requestId);
+        addStored(StandardCharsets.UTF_8.encode(CharBuffer.wrap(text)));
+        addDocLength(docId, vector.length);
+        int occurrence = 0;
+        for (int i = 0; i < vector.size; i++) {
+            PostingList list = postingList(vector.termIds[i]);
+            list.add(docId, vector.freqs[i]);
+            if (positions) {
+                for (int j = 0; j < vector.freqs[i]; j++, occurrence++) {
+                    list.addOccurrence(vector.positions[occurrence], vector.startOffsets[occurrence],
+                            vector.endOffsets[occurrence]);
+                }
+            }
+        }
+        return docId;
+    }
+
+    /**
+     * Appends all documents of a saved segment, used when merging segments.
+     * The segment must have positions if the writer keeps them.
+     */
+    public void addSegment(IndexReader segment) {
+        if (positions && !segment.hasPositions()) {
+            throw new IllegalArgumentException("The segment has no positions");
+        }
+        for (int t = 0; t < segment.numTerms(); t++) {
+            PostingList list = postingList(dictionary.id(segment.term(t)));
+            PostingsIterator appended = segment.postings(t);
+            while (appended.nextDoc() != PostingsIterator.NO_MORE_DOCS) {
+                list.add(appended.docId() + numDocs, appended.freq());
+                if (positions) {
+                    for (int j = 0; j < appended.freq(); j++) {
+                        list.addOccurrence(appended.nextPosition(), appended.startOffset(), appended.endOffset());
+                    }
+                }
+            }
+        }
+        for (int doc = 0; doc < segment.numDocs(); doc++) {
+            requestIds.add(segment.requestId(doc));
+            addDocLength(numDocs + doc, segment.docLength(doc));
+        }
+        addRun(segment, segment.numDocs());
+        numDocs += segment.numDocs();
+    }
+
+    /**
+     * Appends the documents of another writer after the ones already added,
+     * shifting their ids by the number of documents of this writer. The other
+     * writer must keep positions if this one does.
+     */
+    public void append(IndexWriter other) {
+        if (positions && !other.positions) {
+            throw new IllegalArgumentException("The writer has no positions");
+        }
+        for (int termId = 0; termId < other.postings.length; termId++) {
+            PostingList appended = other.postings[termId];
+            if (appended == null) {
+                continue;
+            }
+            PostingList list = postingList(other.dictionary == dictionary
+                    ? termId : dictionary.id(other.dictionary.term(termId)));
+            for (int i = 0; i < appended.size; i++) {
+                list.add(appended.docIds[i] + numDocs, appended.freqs[i]);
+            }
+            if (positions) {
+                // positions are relative to their document, copied as they are
+                for (int i = 0; i < appended.occurrencesSize; i += 3) {
+                    list.addOccurrence(appended.occurrences[i], appended.occurrences[i + 1],
+                            appended.occurrences[i + 2]);
+                }
+            }
+        }
+        requestIds.addAll(other.requestIds);
+        for (int doc = 0; doc < other.numDocs; doc++) {
+            addDocLength(numDocs + doc, other.docLengths[doc]);
+        }
+        int next = 0;
+        for (int r = 0; r < other.storedSources.size(); r++) {
+            IndexReader source = other.storedSources.get(r);
+            if (source != null) {
+                addRun(source, other.storedRuns.get(r));
+                continue;
+            }
+            for (int end = next + other.storedRuns.get(r); next < end; next++) {
+                addStored(ByteBuffer.wrap(other.stored, other.storedStarts[next],
+                        other.storedStarts[next + 1] - other.storedStarts[next]));
+            }
+        }
+        numDocs += other.numDocs;
+    }
+
+    public int numDocs() {
+        return numDocs;
+    }
+
+    /**
+     * Writes the index. The file starts with a header (magic, version,
+     * number of documents, number of terms, total number of tokens, flags)
+     * followed by the postings of every term: doc id gaps and term
+     * frequencies as variable length ints. With FLAG_POSITIONS the positions
+     * of every term follow: for every occurrence, document after document,
+     * the gap to the previous position and start offset in the document and
+     * the length of the token, as variable length ints. Then come the skip
+     * entries of the terms in more than SKIP_INTERVAL documents: every
+     * SKIP_INTERVAL documents, the id of the last document before it, where
+     * the postings of the next document start relative to those of the term
+     * and, with positions, where its positions start, as fixed size ints so
+     * they can be searched without decoding the postings. Then come the
+     * length of every document as a fixed size int, so it can be read by doc
+     * id, the request ids of the documents and the dictionary: terms in
+     * sorted order each with its document frequency, its highest term
+     * frequency, the offset of its postings, of its skip entries and, with
+     * positions, of its positions. The last 24 bytes hold the offsets of the
+     * lengths, of the request ids and of the dictionary.
+     *
+     * The text of the documents goes to a DocumentStore next to the file.
+     */
+    public void write(File file) throws IOException {
+        writeStored(file);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(numDocs);
+            out.writeInt(numTerms);
+            long sumDocLength = 0;
+            for (int doc = 0; doc < numDocs; doc++) {
+                sumDocLength += docLengths[doc];
+            }
+            out.writeLong(sumDocLength);
+            out.writeInt(positions ? FLAG_POSITIONS : 0);
+
+            // terms are written in sorted order
+            String[] terms = new String[numTerms];
+            int t = 0;
+            for (int termId = 0; termId < postings.length; termId++) {
+                if (postings[termId] != null) {
+                    terms[t++] = dictionary.term(termId);
+                }
+            }
+            Arrays.sort(terms);
+            PostingList[] sorted = new PostingList[numTerms];
+            for (t = 0; t < numTerms; t++) {
+                sorted[t] = postings[dictionary.id(terms[t])];
+            }
+
+            long[] offsets = new long[numTerms];
+            int[] maxFreqs = new int[numTerms];
+            // where the documents following a skip entry start, per term
+            int[][] skipPostings = new int[numTerms][];
+            int[][] skipPositions = new int[numTerms][];
+            t = 0;
+            for (PostingList list : sorted) {
+                offsets[t] = out.size();
+                skipPostings[t] = new int[(list.size - 1) / SKIP_INTERVAL];
+                int lastDocId = 0;
+                for (int i = 0; i < list.size; i++) {
+                    if (i > 0 && i % SKIP_INTERVAL == 0) {
+                        skipPostings[t][i / SKIP_INTERVAL - 1] = (int) (out.size() - offsets[t]);
+                    }
+                    VarInt.writeVInt(out, list.docIds[i] - lastDocId);
+                    VarInt.writeVInt(out, list.freqs[i]);
+                    lastDocId = list.docIds[i];
+                    maxFreqs[t] = Math.max(maxFreqs[t], list.freqs[i]);
+                }
+                t++;
+            }
+
+            long[] positionsOffsets = new long[numTerms];
+            if (positions) {
+                t = 0;
+                for (PostingList list : sorted) {
+                    positionsOffsets[t] = out.size();
+                    skipPositions[t] = new int[skipPostings[t].length];
+                    int occurrence = 0;
+                    for (int i = 0; i < list.size; i++) {
+                        if (i > 0 && i % SKIP_INTERVAL == 0) {
+                            skipPositions[t][i / SKIP_INTERVAL - 1] = (int) (out.size() - positionsOffsets[t]);
+                        }
+                        int lastPosition = 0;
+                        int lastStartOffset = 0;
+                        for (int j = 0; j < list.freqs[i]; j++, occurrence += 3) {
+                            int position = list.occurrences[occurrence];
+                            int startOffset = list.occurrences[occurrence + 1];
+                            VarInt.writeVInt(out, position - lastPosition);
+                            VarInt.writeVInt(out, startOffset - lastStartOffset);
+                            VarInt.writeVInt(out, list.occurrences[occurrence + 2] - startOffset);
+                            lastPosition = position;
+                            lastStartOffset = startOffset;
+                        }
+                    }
+                    t++;
+                }
+            }
+
+            long[] skipOffsets = new long[numTerms];
+            for (t = 0; t < numTerms; t++) {
+                skipOffsets[t] = out.size();
+                for (int skip = 0; skip < skipPostings[t].length; skip++) {
+                    out.writeInt(sorted[t].docIds[(skip + 1) * SKIP_INTERVAL - 1]);
+                    out.writeInt(skipPostings[t][skip]);
+                    if (positions) {
+                        out.writeInt(skipPositions[t][skip]);
+                    }
+                }
+            }
+
+            long docLengthsOffset = out.size();
+            for (int doc = 0; doc < numDocs; doc++) {
+                out.writeInt(docLengths[doc]);
+            }
+
+            long requestIdsOffset = out.size();
+            for (String requestId : requestIds) {
+                writeString(out, requestId);
+            }
+
+            long dictionaryOffset = out.size();
+            t = 0;
+            long lastOffset = 0;
+            long lastSkipOffset = 0;
+            long lastPositionsOffset = 0;
+            for (t = 0; t < numTerms; t++) {
+                writeString(out, terms[t]);
+                VarInt.writeVInt(out, sorted[t].size);
+                VarInt.writeVInt(out, maxFreqs[t]);
+                VarInt.writeVLong(out, offsets[t] - lastOffset);
+                lastOffset = offsets[t];
+                VarInt.writeVLong(out, skipOffsets[t] - lastSkipOffset);
+                lastSkipOffset = skipOffsets[t];
+                if (positions) {
+                    VarInt.writeVLong(out, positionsOffsets[t] - lastPositionsOffset);
+                    lastPositionsOffset = positionsOffsets[t];
+                }
+            }
+            out.writeLong(docLengthsOffset);
+            out.writeLong(requestIdsOffset);
+            out.writeLong(dictionaryOffset);
+        } finally {
+            out.close();
+        }
+    }
+
+    // Streams the text of the documents into the document store of file,
+    // decompressing the stores of the added segments block after block
+    private void writeStored(File file) throws IOException {
+        DocumentStore.Writer store = new DocumentStore.Writer(file, true);
+        try {
+            int next = 0;
+            for (int r = 0; r < storedSources.size(); r++) {
+                IndexReader source = storedSources.get(r);
+                for (int i = 0; i < storedRuns.get(r); i++) {
+                    if (source != null) {
+                        store.add(source.documentBytes(i));
+                    } else {
+                        store.add(ByteBuffer.wrap(stored, storedStarts[next], storedStarts[next + 1] - storedStarts[next]));
+                        next++;
+                    }
+                }
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        VarInt.writeVInt(out, bytes.length);
+        out.write(bytes);
+    }
+}
@@ -1,30 +1,19 @@
 package ir;
 
 import com.sun.glass.events.KeyEvent;
-import edu.stanford.nlp.ling.CoreLabel;
-import edu.stanford.nlp.process.CoreLabelTokenFactory;
-import edu.stanford.nlp.process.PTBTokenizer;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.FocusEvent;
 import java.awt.event.FocusListener;
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.StringReader;
 import static java.net.URLEncoder.encode;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.Comparator;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map.Entry;
 import javax.swing.DefaultListModel;
 import javax.swing.JList;
@@ -33,9 +22,10 @@ import javax.swing.JOptionPane;
 import javax.swing.JPopupMenu;
 import javax.swing.JTextField;
 import javax.swing.SwingUtilities;
-import org.json.JSONArray;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 /*
  * To change this license header, choose License Headers in Project Properties.
@@ -49,229 +39,8 @@ import org.json.JSONObject;
 public class InformationRetrievalUI extends javax.swing.JFrame {
 
     /* metaphone code implementation */
-    // ABCDEFGHIJKLMNOPQRSTUVWXYZ
-    private static final char[] DEFAULT_MAPPING = "vBKTvFKHvJKLMNvPKRSTvFW*YS".toCharArray();
-
-    private static char map(char c) {
-        return DEFAULT_MAPPING[c - 'A'];
-    }
-
-    private static int CODE_LENGTH = 6;
-
     public static String encode(final String string) {
-        String word = string.toUpperCase();
-        word = word.replaceAll("[^A-Z]", "");
-        if (word.length() == 0) {
-            return "";
-        } else if (word.length() == 1) {
-            return word;
-        }
-        word = word.replaceFirst("^[KGP]N", "N");
-        word = word.replaceFirst("^WR", "R");
-        word = word.replaceFirst("^AE", "E");
-        word = word.replaceFirst("^PF", "F");
-        word = word.replaceFirst("^WH", "W");
-        word = word.replaceFirst("^X", "S");
-
-        // Transform input string to all caps
-        final char[] input = word.toCharArray();
-
-        int code_index = 0;
-        final char[] code = new char[CODE_LENGTH];
-
-        // Save previous character of word
-        char prev_c = '?';
-
-        for (int i = 0; i < input.length && code_index < CODE_LENGTH; i++) {
-            final char c = input[i];
-            /*
-			 * if (c!='C' && c == prev_c) { 43 // prev_c = c is unncessary 44
-			 * continue; 45 } 46
-             */
-            if (c == prev_c) {
-                // Especial rule for double letters
-                if (c == 'C') {
-                    // We have "cc". The first "c" has already been mapped
-                    // to "K".
-                    if (i < input.length - 1 && "EIY".indexOf(input[i + 1]) >= 0) {
-                        // Do nothing and let it do to cc[eiy] -> KS
-                    } else {
-                        // This "cc" is just one sound
-                        continue;
-                    }
-                } else {
-                    // It is not "cc", so ignore the second letter
-                    continue;
-                }
-            }
-            switch (c) {
-
-                case 'A':
-                case 'E':
-                case 'I':
-                case 'O':
-                case 'U':
-                    // Keep a vowel only if it is the first letter
-                    if (i == 0) {
-                        code[code_index++] = c;
-                    }
-                    break;
-
-                case 'F':
-                case 'J':
-                case 'L':
-                case 'M':
-                case 'N':
-                case 'R':
-                    code[code_index++] = c;
-                    break;
-                case 'Q':
-                case 'V':
-                case 'Z':
-                    code[code_index++] = map(c);
-                    break;
-
-                // B -> B only if NOT MB$
-                case 'B':
-                    if (!(i == input.length - 1 && code_index > 0 && code[code_index - 1] == 'M')) {
-                        code[code_index++] = c;
-                    }
-                    break;
-
-                case 'C':
-                    if (i < input.length - 2 && input[i + 1] == 'I' && input[i + 2] == 'A') {
-                        code[code_index++] = 'X';
-                    } else if (i < input.length - 1 && input[i + 1] == 'H' && i > 0 && input[i - 1] != 'S') {
-                        code[code_index++] = 'X';
-                    } else if (i < input.length - 1 && "EIY".indexOf(input[i + 1]) >= 0) {
-                        code[code_index++] = 'S';
-                    } else {
-                        code[code_index++] = 'K';
-                    }
-                    break;
-
-                case 'D':
-                    if (i < input.length - 2 && input[i + 1] == 'G' && "EIY".indexOf(input[i + 2]) >= 0) {
-                        code[code_index++] = 'J';
-                    } else {
-                        code[code_index++] = 'T';
-                    }
-                    break;
-
-                case 'G':
-                    if (i < input.length - 1 && input[i + 1] == 'N')
-					; // GN -> N [GNED -> NED]
-                    else if (i > 0 && input[i - 1] == 'D' && i < input.length - 1 && "EIY".indexOf(input[i + 1]) >= 0)
-					; // DG[IEY] -> D[IEY]
-                    else if (i < input.length - 1 && input[i + 1] == 'H'
-                            && (i + 2 == input.length || "AEIOU".indexOf(input[i + 2]) < 0))
-					; else if (i < input.length - 1 && "EIY".indexOf(input[i + 1]) >= 0) {
-                        code[code_index++] = 'J';
-                    } else {
-                        code[code_index++] = map(c);
-                    }
-                    break;
-
-                case 'H':
-                    if (i > 0 && "AEIOUCGPST".indexOf(input[i - 1]) >= 0)
-					; // vH -> v
-                    else if (i < input.length - 1 && "AEIOU".indexOf(input[i + 1]) < 0)
-					; // Hc -> c
-                    else {
-                        code[code_index++] = c;
-                    }
-                    break;
-
-                case 'K':
-                    if (i > 0 && input[i - 1] == 'C')
-					; // CK -> K
-                    else {
-                        code[code_index++] = map(c);
-                    }
-                    break;
-
-                case 'P':
-                    if (i < input.length - 1 && input[i + 1] == 'H') {
-                        code[code_index++] = 'F';
-                    } else {
-                        code[code_index++] = map(c);
-                    }
-                    break;
-
-                case 'S':
-                    if (i < input.length - 2 && input[i + 1] == 'I' && (input[i + 2] == 'A' || input[i + 2] == 'O')) {
-                        code[code_index++] = 'X';
-                    } else if (i < input.length - 1 && input[i + 1] == 'H') {
-                        code[code_index++] = 'X';
-                    } else {
-                        code[code_index++] = 'S';
-                    }
-                    break;
-
-                case 'T':
-                    // -TI[AO]- -> -XI[AO]-
-                    // -TCH- -> -CH-
-                    // -TH- -> -0-
-                    // -T- -> -T-
-                    if (i < input.length - 2 && input[i + 1] == 'I' && (input[i + 2] == 'A' || input[i + 2] == 'O')) {
-                        code[code_index++] = 'X';
-                    } else if (i < input.length - 1 && input[i + 1] == 'H') {
-                        code[code_index++] = '0';
-                    } else if (i < input.length - 2 && input[i + 1] == 'C' && input[i + 2] == 'H')
-					; // drop letter
-                    else {
-                        code[code_index++] = 'T';
-                    }
-                    break;
-
-                case 'W':
-                case 'Y':
-                    // -Wv- -> -Wv-; -Wc- -> -c-
-                    // -Yv- -> -Yv-; -Yc- -> -c-
-                    if (i < input.length - 1 && "AEIOU".indexOf(input[i + 1]) >= 0) {
-                        code[code_index++] = map(c);
-                    }
-                    break;
-
-                case 'X':
-                    // -X- -> -KS-
-                    code[code_index++] = 'K';
-                    if (code_index < code.length) {
-                        code[code_index++] = 'S';
-                    }
-                    break;
-
-                default:
-                    assert (false);
-            }
-            prev_c = c;
-        }
-        return new String(code, 0, code_index);
-    }
-
-    private static HashMap<String, Double> sortByComparator(HashMap<String, Double> unsortMap, final boolean order) {
-
-        List<Entry<String, Double>> list = new LinkedList<Entry<String, Double>>(unsortMap.entrySet());
-
-        // Sorting the list based on values
-        Collections.sort(list, new Comparator<Entry<String, Double>>() {
-            public int compare(Entry<String, Double> o1, Entry<String, Double> o2) {
-                if (order) {
-                    return o1.getValue().compareTo(o2.getValue());
-                } else {
-                    return o2.getValue().compareTo(o1.getValue());
-
-                }
-            }
-        });
-
-        // Maintaining insertion order with the help of LinkedList
-        HashMap<String, Double> sortedMap = new LinkedHashMap<String, Double>();
-        for (Entry<String, Double> entry : list) {
-            sortedMap.put(entry.getKey(), entry.getValue());
-        }
-
-        return sortedMap;
+        return Metaphone.toString(Metaphone.encode(string));
     }
 
     public static void printMap(HashMap<String, Double> map) {
@@ -285,7 +54,9 @@ public class InformationRetrievalUI extends javax.swing.JFrame {
      */
     public InformationRetrievalUI() throws JSONException, IOException {
         initComponents();
+        loadIndex();
         addPopup();
+        addSearchAsYouType();
     }
 
     /**
@@ -400,15 +171,8 @@ public class InformationRetrievalUI extends javax.swing.JFrame {
 
     private void jButton1ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton1ActionPerformed
         // TODO add your handling code here:
-        dm.removeAllElements();
         String query = jTextField1.getText().toString();
-        try {
-            searchResult(query);
-        } catch (JSONException ex) {
-            Logger.getLogger(InformationRetrievalUI.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (IOException ex) {
-            Logger.getLogger(InformationRetrievalUI.class.getName()).log(Level.SEVERE, null, ex);
-        }
+        submitSearch(query);
     }//GEN-LAST:event_jButton1ActionPerformed
 
     private void jTextField1ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jTextField1ActionPerformed
@@ -418,15 +182,8 @@ public class InformationRetrievalUI extends javax.swing.JFrame {
     private void jTextField1KeyPressed(java.awt.event.KeyEvent evt) {//GEN-FIRST:event_jTextField1KeyPressed
         // TODO add your handling code here:
         if (evt.getKeyCode() == KeyEvent.VK_ENTER) {
-            dm.removeAllElements();
             String query = jTextField1.getText().toString();
-            try {
-                searchResult(query);
-            } catch (JSONException ex) {
-                Logger.getLogger(InformationRetrievalUI.class.getName()).log(Level.SEVERE, null, ex);
-            } catch (IOException ex) {
-                Logger.getLogger(InformationRetrievalUI.class.getName()).log(Level.SEVERE, null, ex);
-            }
+            submitSearch(query);
         }
     }//GEN-LAST:event_jTextField1KeyPressed
 
@@ -444,137 +201,159 @@ public class InformationRetrievalUI extends javax.swing.JFrame {
     }//GEN-LAST:event_jList1MouseClicked
 
     String fileName = "../all_project_data/pizza_request_dataset.json";
-
-    private void searchResult(String query) throws JSONException, FileNotFoundException, IOException {
-
-        TreeMap<String, Integer> queryMap = new TreeMap<String, Integer>();
-        // Query Tokenization begins
-        PTBTokenizer<CoreLabel> ptbtQuery = new PTBTokenizer<>(new StringReader(query), new CoreLabelTokenFactory(), "");
-        while (ptbtQuery.hasNext()) {
-            CoreLabel queryToken = ptbtQuery.next();
-            // Query Stemming begins
-            Stemmer s = new Stemmer();
-            String querystring = queryToken.toString();
-            querystring = querystring.toLowerCase();
-            for (int c = 0; c < querystring.length(); c++) {
-                s.add(querystring.charAt(c));
+    String corpusDirName = "../all_project_data/corpus";
+    String indexDirName = "../all_project_data/index";
+    IndexDirectory indexDirectory;
+    Similarity similarity = Similarity.forName(System.getProperty("ir.similarity", "bim"));
+    QueryCache queryCache = new QueryCache(256);
+    // -Dir.cacheStats=true prints the hit rate of the cache after every search
+    static final boolean CACHE_STATS = Boolean.getBoolean("ir.cacheStats");
+
+    // Opens the inverted index, building it from the json dataset and the
+    // corpus the first time and adding the corpus files that are new since
+    // the last run. Documents are indexed on a thread of their own, a batch
+    // at a time, so the window opens at once and searches find every batch
+    // flushed so far.
+    private void loadIndex() throws IOException {
+        // the tokenizer only applies to a new index, run with
+        // -Dir.tokenizer=simple for the fast scanner instead of PTB; so do
+        // the positions the result snippets need (-Dir.positions=false
+        // for a smaller index without snippets)
+        indexDirectory = IndexDirectory.open(new File(indexDirName), Tokenizer.forName(System.getProperty("ir.tokenizer", "ptb")),
+                Boolean.parseBoolean(System.getProperty("ir.positions", "true")));
+        indexDirectory.startMerger();
+        final String title = getTitle();
+        setTitle(title + "(indexing new documents...)");
+        Thread indexer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ParallelIndexBuilder.update(indexDirectory, fileName, new File(corpusDirName));
+                } catch (JSONException ex) {
+                    Logger.getLogger(InformationRetrievalUI.class.getName()).log(Level.SEVERE, null, ex);
+                } catch (IOException ex) {
+                    Logger.getLogger(InformationRetrievalUI.class.getName()).log(Level.SEVERE, null, ex);
+                } finally {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            setTitle(title);
+                        }
+                    });
+                }
             }
-            s.stem();
-            String queryTerm;
-            queryTerm = s.toString();
-            if (queryTerm.matches("[a-zA-Z][a-z]+")) {
+        }, "index-update");
+        indexer.setDaemon(true);
+        indexer.start();
+    }
 
-                // Query Metaphone begins
-                queryTerm = encode(queryTerm);
-            }
-            Integer freq = queryMap.get(queryTerm);
-            queryMap.put(queryTerm, (freq == null) ? 1 : freq + 1);
-        }
+    // Searches run on their own thread so the window stays responsive; only
+    // the latest search started on the EDT gets to show its results
+    final ExecutorService searchExecutor = SearchExecutors.newExecutor("search", 1);
+    Future<?> pendingSearch;
+    long latestSearch = 0;
 
-        // Corpus-retrieving of documents from json file
-        String json = null;
-        BufferedReader br = new BufferedReader(new FileReader(fileName));
-        try {
-            StringBuilder sb = new StringBuilder();
-            String line = br.readLine();
+    private void submitSearch(final String query) {
+        submitSearch(query, false);
+    }
 
-            while (line != null) {
-                sb.append(line);
-                line = br.readLine();
-            }
-            json = sb.toString();
-        } finally {
-            br.close();
+    private void submitSearch(final String query, final boolean prefix) {
+        if (!prefix) {
+            // the full query supersedes a pending search as you type
+            typingTimer.stop();
         }
-        JSONArray JSONarray = new JSONArray(json);
-
-        // 'FinalTermFrequencyMap' is the TreeMap that displays the final document with dictionary
-        // terms as tokens and integer value as document frequency
-        TreeMap<String, Integer> FinalTermFrequencyMap = new TreeMap<String, Integer>();
-
-        // Making an array list of all the individual Treemaps that represent
-        // individual documents (in terms of tokens and term frequency).
-        ArrayList<TreeMap<String, Integer>> list = new ArrayList<TreeMap<String, Integer>>();
-        for (int i = 0; i < JSONarray.length(); i++) {
-            JSONObject object = JSONarray.getJSONObject(i);
-            String request_data = null;
-            request_data = object.getString("request_text");
-
-            //Document Tokenization begins
-            TreeMap<String, Integer> IndividualTermFrequency = new TreeMap<String, Integer>();
-
-            PTBTokenizer<CoreLabel> ptbtDoc = new PTBTokenizer<>(new StringReader(request_data),
-                    new CoreLabelTokenFactory(), "");
-            while (ptbtDoc.hasNext()) {
-                CoreLabel docToken = ptbtDoc.next();
-                //Document Stemming begins
-                Stemmer s = new Stemmer();
-                String docString = docToken.toString();
-                docString = docString.toLowerCase();
-
-                for (int c = 0; c < docString.length(); c++) {
-                    s.add(docString.charAt(c));
-                }
-                s.stem();
-                String docTerm;
-                docTerm = s.toString();
-                if (docTerm.matches("[a-zA-Z][a-z]+")) {
-                    //Document Metaphone begins
-                    docTerm = encode(docTerm);
+        final int k = Integer.parseInt(jSpinner1.getValue().toString());
+        final long search = ++latestSearch;
+        if (pendingSearch != null) {
+            // a queued search never starts, a running one finishes without
+            // being interrupted and its results are discarded
+            pendingSearch.cancel(false);
+        }
+        pendingSearch = searchExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    SegmentedIndex view = indexDirectory.current();
+                    final TopDocs topDocs = searchResult(view, query, k, prefix);
+                    final String[] labels = labels(view, query, prefix, topDocs);
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (search == latestSearch) {
+                                populateList(topDocs, labels, k);
+                            }
+                        }
+                    });
+                } catch (RuntimeException ex) {
+                    Logger.getLogger(InformationRetrievalUI.class.getName()).log(Level.SEVERE, null, ex);
                 }
-                Integer freq = IndividualTermFrequency.get(docTerm);
-                IndividualTermFrequency.put(docTerm, (freq == null) ? 1 : freq + 1);
             }
-            for (Entry<String, Integer> entry : IndividualTermFrequency.entrySet()) {
-                String key = entry.getKey();
-                Integer freq = FinalTermFrequencyMap.get(key);
-                FinalTermFrequencyMap.put(key, (freq == null) ? 1 : freq + 1);
-            }
-
-            list.add(IndividualTermFrequency);
-        }
-        //Total Number of Documents-'totalDocuments'
-        int totalDocuments = list.size();
-        TreeMap<String, Double> rankedProduct = new TreeMap<String, Double>();
+        });
+    }
 
-        for (Entry<String, Integer> entry : FinalTermFrequencyMap.entrySet()) {
+    private TopDocs searchResult(SegmentedIndex view, String query, int k, boolean prefix) {
 
-            String key = entry.getKey();
-            Integer documentFrequency = entry.getValue();
-            Double rankedValue = (totalDocuments - documentFrequency + 0.5) / (documentFrequency + 0.5);
-            rankedProduct.put(key, rankedValue);
+        // Only the postings of the query terms are walked, documents without
+        // any query term keep the neutral score (a product value of 1.00 for
+        // the default model, run with -Dir.similarity=bm25 for BM25)
+        Searcher searcher = new Searcher(view, queryCache);
+        TopDocs topDocs = prefix ? searcher.searchPrefix(query, similarity, k, COMPLETIONS)
+                : searcher.search(query, similarity, k);
+        if (CACHE_STATS) {
+            System.out.println(queryCache);
         }
+        return topDocs;
+    }
 
-        // Making a HashMap that contains dictionary tokens and their final
-        // product value which would be used to keep ranking of documents
-        HashMap<String, Double> unsortMap = new HashMap<String, Double>();
-        int i = 1;
-        for (TreeMap<String, Integer> d : list) {
-            Double product = 1.00;
-            for (Entry<String, Integer> entry : queryMap.entrySet()) {
+    // List entries of the results: "Doc N", with a snippet of the document
+    // highlighting the query terms when the index has positions
+    private String[] labels(SegmentedIndex view, String query, boolean prefix, TopDocs topDocs) {
+        int[] docs = new int[topDocs.size()];
+        for (int i = 0; i < docs.length; i++) {
+            docs[i] = topDocs.docId(i);
+        }
+        Searcher searcher = new Searcher(view);
+        String[] snippets = Snippets.html(view, prefix ? searcher.prefixTerms(query, COMPLETIONS) : searcher.terms(query), docs);
+        String[] labels = new String[docs.length];
+        for (int i = 0; i < docs.length; i++) {
+            labels[i] = snippets[i] == null ? "Doc " + (docs[i] + 1)
+                    : "<html><body style='width: 520px'><b>Doc " + (docs[i] + 1) + "</b><br>" + snippets[i];
+        }
+        return labels;
+    }
 
-                String key = entry.getKey();
-                if (d.containsKey(key)) {
-                    product = product * (rankedProduct.get(key));
+    // Search as you type: once typing pauses for DEBOUNCE_MILLIS the query is
+    // searched with its last, possibly unfinished, word completed
+    private static final int DEBOUNCE_MILLIS = 250;
+    private static final int COMPLETIONS = 5;
+    private Timer typingTimer;
 
+    private void addSearchAsYouType() {
+        typingTimer = new Timer(DEBOUNCE_MILLIS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                String query = jTextField1.getText();
+                if (!query.trim().isEmpty()) {
+                    submitSearch(query, true);
                 }
             }
-            unsortMap.put("Doc " + i, product);
-            i++;
-        }
-        // Making a new HashMap that would sort the HashMap that contained key
-        // and unsorted product ranks in descending order
-        HashMap<String, Double> sortedMapDesc = sortByComparator(unsortMap, false);
-        ArrayList<String> sortedOutput = new ArrayList<>();
-        for (Entry<String, Double> entry : sortedMapDesc.entrySet()) {
-
-            String key = entry.getKey();
-            Double d = entry.getValue();
-            sortedOutput.add(key);
-            System.out.println(key + "   " + d);
-        }
+        });
+        typingTimer.setRepeats(false);
+        jTextField1.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                typingTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                typingTimer.restart();
+            }
 
-        populateList(sortedOutput);
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
     }
 
     static String data = "";
@@ -582,11 +361,14 @@ public class InformationRetrievalUI extends javax.swing.JFrame {
     final JPopupMenu pop = new JPopupMenu();
     DefaultListModel<String> dm = new DefaultListModel<>();
     int doc_number = 0;
+    TopDocs shownDocs;
 
-    private void populateList(ArrayList<String> sortedOutput) {
-        doc_number = Integer.parseInt(jSpinner1.getValue().toString());
-        for (int i = 0; i < doc_number; i++) {
-            dm.addElement(sortedOutput.get(i));
+    private void populateList(TopDocs topDocs, String[] labels, int k) {
+        dm.removeAllElements();
+        doc_number = k;
+        shownDocs = topDocs;
+        for (int i = 0; i < doc_number && i < topDocs.size(); i++) {
+            dm.addElement(labels[i]);
         }
         jList1.setModel(dm);
     }
@@ -594,29 +376,16 @@ public class InformationRetrievalUI extends javax.swing.JFrame {
     private void addPopup() throws JSONException, FileNotFoundException, IOException {
         JMenuItem show = new JMenuItem("show");
         pop.add(show);
-        BufferedReader br = new BufferedReader(new FileReader(fileName));
-        StringBuilder sb = new StringBuilder();
-        String line = br.readLine();
-        while (line != null) {
-            sb.append(line);
-            line = br.readLine();
-        }
-        br.close();
         show.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                try {
-                    JSONArray array = new JSONArray(sb.toString());
-                    JSONObject object = null;
-                    String content = null;
-                    if (data != null) {
-                        object = array.getJSONObject(Integer.parseInt(data.substring(4)));
-                        content = object.getString("request_text");
-                    }
-                    JOptionPane.showMessageDialog(InformationRetrievalUI.this, "<html><body><p style='width: 200px;'>" + content, "DOC DATA", JOptionPane.INFORMATION_MESSAGE);
-                } catch (JSONException ex) {
-                    Logger.getLogger(InformationRetrievalUI.class.getName()).log(Level.SEVERE, null, ex);
+                // Fetch only the selected document from the index
+                String content = null;
+                if (shownDocs != null && index >= 0 && index < shownDocs.size()) {
+                    // doc ids stay the same when segments are added or merged
+                    content = indexDirectory.current().document(shownDocs.docId(index));
                 }
+                JOptionPane.showMessageDialog(InformationRetrievalUI.this, "<html><body><p style='width: 200px;'>" + content, "DOC DATA", JOptionPane.INFORMATION_MESSAGE);
             }
         });
     }
@@ -0,0 +1,218 @@
+package ir;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.json.JSONException;
+
+/**
+ * Pull reader over a json array of objects, such as the pizza request
+ * dataset. Records are read one at a time and only the requested top level
+ * string fields are kept, everything else is skipped while scanning, so
+ * memory does not grow with the size of the file.
+ */
+public class JsonRecordReader implements Closeable {
+
+    private final Reader in;
+    private final Set<String> fields;
+    private final StringBuilder sb = new StringBuilder();
+    private int peeked = -2;
+    private boolean started = false;
+    private boolean finished = false;
+
+    public JsonRecordReader(Reader in, String... fields) {
+        this.in = in;
+        this.fields = new HashSet<String>();
+        for (String field : fields) {
+            this.fields.add(field);
+        }
+    }
+
+    public JsonRecordReader(String fileName, String... fields) throws IOException {
+        this(new BufferedReader(new InputStreamReader(new FileInputStream(fileName), StandardCharsets.UTF_8)), fields);
+    }
+
+    /**
+     * Returns the requested fields of the next record, or null at the end of
+     * the array. Fields missing from the record, or that are not strings, are
+     * absent from the map.
+     */
+    public Map<String, String> next() throws IOException, JSONException {
+        if (finished) {
+            return null;
+        }
+        int c = nextClean();
+        if (!started) {
+            if (c != '[') {
+                throw error("Expected '['");
+            }
+            started = true;
+            c = nextClean();
+            if (c == ']') {
+                finished = true;
+                return null;
+            }
+        } else if (c == ',') {
+            c = nextClean();
+        } else if (c == ']') {
+            finished = true;
+            return null;
+        }
+        if (c != '{') {
+            throw error("Expected '{'");
+        }
+        Map<String, String> record = new HashMap<String, String>();
+        c = nextClean();
+        if (c == '}') {
+            return record;
+        }
+        while (true) {
+            if (c != '"') {
+                throw error("Expected a field name");
+            }
+            String key = readString();
+            if (nextClean() != ':') {
+                throw error("Expected ':'");
+            }
+            c = nextClean();
+            if (c == '"' && fields.contains(key)) {
+                record.put(key, readString());
+            } else {
+                skipValue(c);
+            }
+            c = nextClean();
+            if (c == '}') {
+                return record;
+            } else if (c != ',') {
+                throw error("Expected ',' or '}'");
+            }
+            c = nextClean();
+        }
+    }
+
+    private int read() throws IOException {
+        if (peeked != -2) {
+            int c = peeked;
+            peeked = -2;
+            return c;
+        }
+        return in.read();
+    }
+
+    private int nextClean() throws IOException {
+        int c = read();
+        while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+            c = read();
+        }
+        return c;
+    }
+
+    // Reads the rest of a string whose opening quote was consumed
+    private String readString() throws IOException, JSONException {
+        sb.setLength(0);
+        while (true) {
+            int c = read();
+            if (c < 0) {
+                throw error("Unterminated string");
+            } else if (c == '"') {
+                return sb.toString();
+            } else if (c == '\\') {
+                c = read();
+                switch (c) {
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 'u':
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(read(), 16);
+                            if (digit < 0) {
+                                throw error("Illegal escape");
+                            }
+                            code = (code << 4) | digit;
+                        }
+                        sb.append((char) code);
+                        break;
+                    case '"':
+                    case '\\':
+                    case '/':
+                        sb.append((char) c);
+                        break;
+                    default:
+                        throw error("Illegal escape");
+                }
+            } else {
+                sb.append((char) c);
+            }
+        }
+    }
+
+    // Skips a value whose first character was consumed
+    private void skipValue(int c) throws IOException, JSONException {
+        if (c == '"') {
+            skipString();
+        } else if (c == '{' || c == '[') {
+            int depth = 1;
+            while (depth > 0) {
+                c = read();
+                if (c < 0) {
+                    throw error("Unterminated value");
+                } else if (c == '"') {
+                    skipString();
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+            }
+        } else {
+            // number, true, false or null
+            while (c >= 0 && c != ',' && c != '}' && c != ']') {
+                c = read();
+            }
+            peeked = c;
+        }
+    }
+
+    private void skipString() throws IOException, JSONException {
+        while (true) {
+            int c = read();
+            if (c < 0) {
+                throw error("Unterminated string");
+            } else if (c == '"') {
+                return;
+            } else if (c == '\\') {
+                read();
+            }
+        }
+    }
+
+    private JSONException error(String message) {
+        return new JSONException(message);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
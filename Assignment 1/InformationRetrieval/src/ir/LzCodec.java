@@ -0,0 +1,167 @@
+package ir;
+
+import java.util.Arrays;
+
+/**
+ * Small LZ77 compressor in the style of LZ4, used for the blocks of the
+ * document store. The output is a series of sequences: a token byte holding
+ * the number of literal bytes (high 4 bits) and the match length minus 4
+ * (low 4 bits), longer lengths continued in bytes of 255, the literals, then
+ * the distance back to the match in 2 little endian bytes. The last sequence
+ * has literals only. Compression walks hash chains of earlier positions
+ * starting with the same 4 bytes and takes the longest match among the
+ * nearest MAX_CHAIN of them; it runs once per block at index time, while
+ * decompression is a plain copy loop.
+ */
+final class LzCodec {
+
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_OFFSET = 65535;
+    private static final int HASH_BITS = 14;
+    private static final int MAX_CHAIN = 32;
+
+    private LzCodec() {
+    }
+
+    /**
+     * Largest size compress can produce for len bytes.
+     */
+    static int maxCompressedLength(int len) {
+        return len + len / 255 + 16;
+    }
+
+    /**
+     * Compresses src[off, off + len) into dst, which has at least
+     * maxCompressedLength(len) bytes, and returns the compressed length.
+     */
+    static int compress(byte[] src, int off, int len, byte[] dst) {
+        // head[h] is the last position whose 4 bytes hash to h, chain[p - off]
+        // the position before p with the same hash
+        int[] head = new int[1 << HASH_BITS];
+        Arrays.fill(head, -1);
+        int[] chain = new int[len];
+        int end = off + len;
+        int anchor = off;
+        int d = 0;
+        int p = off;
+        while (p + MIN_MATCH <= end) {
+            int h = hash(src, p);
+            int matchLen = 0;
+            int match = -1;
+            int depth = 0;
+            for (int ref = head[h]; ref >= 0 && p - ref <= MAX_OFFSET && depth < MAX_CHAIN; ref = chain[ref - off], depth++) {
+                // a longer match must at least agree on the byte past the best one
+                if (p + matchLen < end && src[ref + matchLen] == src[p + matchLen]) {
+                    int n = 0;
+                    while (p + n < end && src[ref + n] == src[p + n]) {
+                        n++;
+                    }
+                    if (n > matchLen) {
+                        matchLen = n;
+                        match = ref;
+                    }
+                }
+            }
+            chain[p - off] = head[h];
+            head[h] = p;
+            if (matchLen < MIN_MATCH) {
+                p++;
+                continue;
+            }
+            d = writeSequence(src, anchor, p - anchor, p - match, matchLen, dst, d);
+            // the positions inside the match become candidates too
+            for (int q = p + 1, to = Math.min(p + matchLen, end - MIN_MATCH + 1); q < to; q++) {
+                int hq = hash(src, q);
+                chain[q - off] = head[hq];
+                head[hq] = q;
+            }
+            p += matchLen;
+            anchor = p;
+        }
+        return writeSequence(src, anchor, end - anchor, 0, 0, dst, d);
+    }
+
+    // Writes one sequence, a match length of 0 marks the last one
+    private static int writeSequence(byte[] src, int literals, int literalLen, int offset, int matchLen,
+            byte[] dst, int d) {
+        int token = d++;
+        int matchCode = matchLen == 0 ? 0 : matchLen - MIN_MATCH;
+        dst[token] = (byte) (Math.min(literalLen, 15) << 4 | Math.min(matchCode, 15));
+        if (literalLen >= 15) {
+            d = writeLength(literalLen - 15, dst, d);
+        }
+        System.arraycopy(src, literals, dst, d, literalLen);
+        d += literalLen;
+        if (matchLen > 0) {
+            dst[d++] = (byte) offset;
+            dst[d++] = (byte) (offset >>> 8);
+            if (matchCode >= 15) {
+                d = writeLength(matchCode - 15, dst, d);
+            }
+        }
+        return d;
+    }
+
+    private static int writeLength(int length, byte[] dst, int d) {
+        while (length >= 255) {
+            dst[d++] = (byte) 255;
+            length -= 255;
+        }
+        dst[d++] = (byte) length;
+        return d;
+    }
+
+    private static int hash(byte[] b, int p) {
+        int seq = (b[p] & 0xFF) | (b[p + 1] & 0xFF) << 8 | (b[p + 2] & 0xFF) << 16 | b[p + 3] << 24;
+        return (seq * -1640531535) >>> (32 - HASH_BITS);
+    }
+
+    /**
+     * Decompresses src[off, off + len) into dst, which must be exactly as
+     * long as the uncompressed data.
+     */
+    static void decompress(byte[] src, int off, int len, byte[] dst) {
+        int end = off + len;
+        int s = off;
+        int d = 0;
+        while (true) {
+            int token = src[s++] & 0xFF;
+            int literalLen = token >>> 4;
+            if (literalLen == 15) {
+                do {
+                    literalLen += src[s] & 0xFF;
+                } while ((src[s++] & 0xFF) == 255);
+            }
+            System.arraycopy(src, s, dst, d, literalLen);
+            s += literalLen;
+            d += literalLen;
+            if (s >= end) {
+                break;
+            }
+            int offset = (src[s] & 0xFF) | (src[s + 1] & 0xFF) << 8;
+            s += 2;
+            int matchLen = token & 15;
+            if (matchLen == 15) {
+                do {
+                    matchLen += src[s] & 0xFF;
+                } while ((src[s++] & 0xFF) == 255);
+            }
+            matchLen += MIN_MATCH;
+            if (offset == 0 || offset > d || d + matchLen > dst.length) {
+                throw new IllegalStateException("Corrupt compressed block");
+            }
+            if (offset >= matchLen) {
+                System.arraycopy(dst, d - offset, dst, d, matchLen);
+                d += matchLen;
+            } else {
+                // the match overlaps the bytes it produces
+                for (int ref = d - offset, to = d + matchLen; d < to; d++, ref++) {
+                    dst[d] = dst[ref];
+                }
+            }
+        }
+        if (d != dst.length) {
+            throw new IllegalStateException("Corrupt compressed block");
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package ir;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Postings of one term of a segment, decoding the doc id gaps and term
+ * frequencies from the mapped file as it goes. On segments with positions a
+ * second cursor walks the occurrences; those of documents the caller did not
+ * look at are only skipped when it reads positions again, so callers that
+ * never do decode none. advance() first jumps to the last
+ * skip entry before its target, then decodes the few documents left, so
+ * intersecting with a short list reads a fraction of a long one.
+ */
+class MappedPostingsIterator extends PostingsIterator {
+
+    private final IndexReader segment;
+    private final ByteBuffer in;
+    private final ByteBuffer positions;
+    private final int docFreq;
+    // where the postings and positions of the term start, and its skip
+    // entries, in the mapped segment
+    private final int postingsStart;
+    private final int positionsStart;
+    private final ByteBuffer skips;
+    private final int skipStart;
+    private final int skipEntry;
+    private final int numSkips;
+    private int read = 0;
+    private int docId = -1;
+    private int freq = 0;
+    // occurrences of the current document not read yet, and of the documents
+    // before it that are still to be skipped
+    private int pendingPositions = 0;
+    private long skippedPositions = 0;
+    private int position;
+    private int startOffset;
+    private int endOffset;
+
+    MappedPostingsIterator(IndexReader segment, ByteBuffer in, ByteBuffer positions, int docFreq,
+            ByteBuffer skips, int skipStart) {
+        this.segment = segment;
+        this.in = in;
+        this.positions = positions;
+        this.docFreq = docFreq;
+        this.skips = skips;
+        this.skipStart = skipStart;
+        postingsStart = in.position();
+        positionsStart = positions == null ? 0 : positions.position();
+        skipEntry = positions == null ? 8 : 12;
+        numSkips = (docFreq - 1) / IndexWriter.SKIP_INTERVAL;
+    }
+
+    @Override
+    public int nextDoc() {
+        if (read == docFreq) {
+            return docId = NO_MORE_DOCS;
+        }
+        read++;
+        docId = Math.max(docId, 0) + VarInt.readVInt(in);
+        freq = VarInt.readVInt(in);
+        if (positions != null) {
+            skippedPositions += pendingPositions;
+            pendingPositions = freq;
+            position = 0;
+            startOffset = 0;
+        }
+        return docId;
+    }
+
+    @Override
+    public int advance(int target) {
+        // skip entry e follows the (e + 1) * SKIP_INTERVAL first documents,
+        // the ones before read / SKIP_INTERVAL are behind
+        int skip = read / IndexWriter.SKIP_INTERVAL;
+        if (skip < numSkips && skipDoc(skip) < target) {
+            while (skip + 1 < numSkips && skipDoc(skip + 1) < target) {
+                skip++;
+            }
+            int entry = skipStart + skip * skipEntry;
+            read = (skip + 1) * IndexWriter.SKIP_INTERVAL;
+            docId = skips.getInt(entry);
+            in.position(postingsStart + skips.getInt(entry + 4));
+            if (positions != null) {
+                positions.position(positionsStart + skips.getInt(entry + 8));
+                pendingPositions = 0;
+                skippedPositions = 0;
+            }
+        }
+        int doc = docId;
+        while (doc < target) {
+            doc = nextDoc();
+        }
+        return doc;
+    }
+
+    private int skipDoc(int skip) {
+        return skips.getInt(skipStart + skip * skipEntry);
+    }
+
+    @Override
+    public int docId() {
+        return docId;
+    }
+
+    @Override
+    public int freq() {
+        return freq;
+    }
+
+    @Override
+    public int docLength() {
+        return segment.docLength(docId);
+    }
+
+    @Override
+    public int cost() {
+        return docFreq;
+    }
+
+    @Override
+    public int nextPosition() {
+        if (positions == null) {
+            return super.nextPosition();
+        }
+        if (pendingPositions == 0) {
+            throw new IllegalStateException("All " + freq + " positions were read");
+        }
+        for (; skippedPositions > 0; skippedPositions--) {
+            VarInt.readVInt(positions);
+            VarInt.readVInt(positions);
+            VarInt.readVInt(positions);
+        }
+        pendingPositions--;
+        position += VarInt.readVInt(positions);
+        startOffset += VarInt.readVInt(positions);
+        endOffset = startOffset + VarInt.readVInt(positions);
+        return position;
+    }
+
+    @Override
+    public int startOffset() {
+        return positions == null ? super.startOffset() : startOffset;
+    }
+
+    @Override
+    public int endOffset() {
+        return positions == null ? super.endOffset() : endOffset;
+    }
+}
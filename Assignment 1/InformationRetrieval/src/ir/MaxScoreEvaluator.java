@@ -0,0 +1,125 @@
+package ir;
+
+import java.util.TreeMap;
+
+/**
+ * Document at a time evaluation with MaxScore pruning. Each query term has an
+ * upper bound on what it can add to a document's score, from the model and
+ * the term's statistics in the index. Terms are sorted by bound; once the
+ * top k is full, the terms whose bounds combine to less than the current
+ * k-th score are non-essential: a document containing only those cannot
+ * enter the top k, so only the postings of the essential terms drive the
+ * evaluation and the others are advanced to the candidates. Results are the
+ * same as exhaustive evaluation, ties included: bounds are combined in query
+ * term order, like actual scores, so rounding cannot make a bound smaller
+ * than the score it bounds.
+ */
+public class MaxScoreEvaluator extends QueryEvaluator {
+
+    @Override
+    public TopDocs evaluate(SegmentedIndex index, TreeMap<String, Integer> queryMap, Similarity similarity, int k) {
+        int totalDocuments = index.numDocs();
+        double avgDocLength = index.avgDocLength();
+        double neutral = similarity.neutral();
+        PostingsIterator[] postings = new PostingsIterator[queryMap.size()];
+        double[] idfs = new double[queryMap.size()];
+        double[] bounds = new double[queryMap.size()];
+        int n = 0;
+        for (String key : queryMap.keySet()) {
+            PostingsIterator cursor = index.postings(key);
+            if (cursor != null) {
+                idfs[n] = similarity.idf(totalDocuments, cursor.cost());
+                bounds[n] = similarity.maxTermScore(idfs[n], index.maxFreq(key), avgDocLength);
+                cursor.nextDoc();
+                postings[n++] = cursor;
+            }
+        }
+        // terms by increasing upper bound, rank is the position of a term
+        // in that order
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            int t = i;
+            while (t > 0 && bounds[order[t - 1]] > bounds[i]) {
+                order[t] = order[t - 1];
+                t--;
+            }
+            order[t] = i;
+        }
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            rank[order[i]] = i;
+        }
+
+        TopKSelector selector = new TopKSelector(k);
+        int remaining = k;
+        int next = 0;
+        // order[0, essential) are the non-essential terms
+        int essential = 0;
+        while (true) {
+            if (selector.isFull()) {
+                while (essential < n) {
+                    double bound = neutral;
+                    for (int t = 0; t < n; t++) {
+                        if (rank[t] <= essential) {
+                            bound = similarity.combine(bound, bounds[t]);
+                        }
+                    }
+                    if (bound >= selector.minScore()) {
+                        break;
+                    }
+                    essential++;
+                }
+                if (essential == n) {
+                    // nothing left can beat the k-th score, unmatched
+                    // documents included since it is above neutral
+                    return selector.topDocs();
+                }
+            }
+            int doc = PostingsIterator.NO_MORE_DOCS;
+            for (int i = essential; i < n; i++) {
+                doc = Math.min(doc, postings[order[i]].docId());
+            }
+            if (doc == PostingsIterator.NO_MORE_DOCS) {
+                break;
+            }
+
+            remaining = collectUnmatched(selector, next, doc, remaining, neutral);
+            next = doc + 1;
+            if (selector.isFull()) {
+                double bound = neutral;
+                for (int t = 0; t < n; t++) {
+                    if (rank[t] < essential) {
+                        bound = similarity.combine(bound, bounds[t]);
+                    } else if (postings[t].docId() == doc) {
+                        bound = similarity.combine(bound, similarity.termScore(idfs[t],
+                                postings[t].freq(), postings[t].docLength(), avgDocLength));
+                    }
+                }
+                if (bound < selector.minScore()) {
+                    for (int i = essential; i < n; i++) {
+                        if (postings[order[i]].docId() == doc) {
+                            postings[order[i]].nextDoc();
+                        }
+                    }
+                    continue;
+                }
+            }
+
+            // terms are combined in query term order, like the other evaluators
+            double score = neutral;
+            for (int t = 0; t < n; t++) {
+                if (postings[t].docId() < doc) {
+                    postings[t].advance(doc);
+                }
+                if (postings[t].docId() == doc) {
+                    score = similarity.combine(score, similarity.termScore(idfs[t],
+                            postings[t].freq(), postings[t].docLength(), avgDocLength));
+                    postings[t].nextDoc();
+                }
+            }
+            selector.collect(doc, score);
+        }
+        collectUnmatched(selector, next, totalDocuments, remaining, neutral);
+        return selector.topDocs();
+    }
+}
@@ -0,0 +1,309 @@
+package ir;
+
+/**
+ * Metaphone code of a word, at most CODE_LENGTH characters long. A code is
+ * returned packed into a long, one character per byte with the first
+ * character in the highest used byte, so codes can be compared and hashed
+ * as primitives and only turned into a String when needed. Code characters
+ * are never 0, the empty code is 0.
+ */
+public final class Metaphone {
+
+    static final int CODE_LENGTH = 6;
+
+    // ABCDEFGHIJKLMNOPQRSTUVWXYZ
+    private static final char[] DEFAULT_MAPPING = "vBKTvFKHvJKLMNvPKRSTvFW*YS".toCharArray();
+
+    // Per thread copy of the word being encoded
+    private static final ThreadLocal<char[]> BUFFERS = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[64];
+        }
+    };
+
+    private Metaphone() {
+    }
+
+    private static char map(char c) {
+        return DEFAULT_MAPPING[c - 'A'];
+    }
+
+    private static boolean isVowel(char c) {
+        return c == 'A' || c == 'E' || c == 'I' || c == 'O' || c == 'U';
+    }
+
+    private static boolean isFrontVowel(char c) {
+        return c == 'E' || c == 'I' || c == 'Y';
+    }
+
+    /**
+     * Returns the code of the word in the len characters of chars starting
+     * at off. Only letters count, case is ignored.
+     */
+    public static long encode(char[] chars, int off, int len) {
+        char[] input = BUFFERS.get();
+        if (len > input.length) {
+            input = new char[Math.max(len, input.length * 2)];
+            BUFFERS.set(input);
+        }
+        // Transform input to all caps and keep the letters only
+        int n = 0;
+        for (int i = off; i < off + len; i++) {
+            char c = chars[i];
+            if (c >= 'a' && c <= 'z') {
+                input[n++] = (char) (c - ('a' - 'A'));
+            } else if (c >= 'A' && c <= 'Z') {
+                input[n++] = c;
+            } else if (c >= 128) {
+                // non ASCII letters may upper case to ASCII ones, possibly
+                // more than one, let String do it
+                return encode(new String(chars, off, len));
+            }
+        }
+        return encode(input, n);
+    }
+
+    /**
+     * Returns the code of the word, the same as the char[] version.
+     */
+    public static long encode(String string) {
+        String word = string.toUpperCase();
+        char[] input = BUFFERS.get();
+        if (word.length() > input.length) {
+            input = new char[word.length()];
+            BUFFERS.set(input);
+        }
+        int n = 0;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                input[n++] = c;
+            }
+        }
+        return encode(input, n);
+    }
+
+    // Encodes the first n characters of input, all in A-Z; input is changed
+    private static long encode(char[] input, int n) {
+        if (n == 0) {
+            return 0;
+        } else if (n == 1) {
+            return input[0];
+        }
+        char first = input[0];
+        char second = input[1];
+        if ((first == 'K' || first == 'G' || first == 'P') && second == 'N') {
+            // KN -> N, GN -> N, PN -> N
+            System.arraycopy(input, 1, input, 0, --n);
+        } else if (first == 'W' && second == 'R') {
+            // WR -> R
+            System.arraycopy(input, 1, input, 0, --n);
+        } else if (first == 'A' && second == 'E') {
+            // AE -> E
+            System.arraycopy(input, 1, input, 0, --n);
+        } else if (first == 'P' && second == 'F') {
+            // PF -> F
+            System.arraycopy(input, 1, input, 0, --n);
+        } else if (first == 'W' && second == 'H') {
+            // WH -> W
+            System.arraycopy(input, 2, input, 1, n - 2);
+            n--;
+        } else if (first == 'X') {
+            // X -> S
+            input[0] = 'S';
+        }
+
+        long code = 0;
+        int codeIndex = 0;
+
+        // Save previous character of word
+        char prev = '?';
+
+        for (int i = 0; i < n && codeIndex < CODE_LENGTH; i++) {
+            final char c = input[i];
+            if (c == prev) {
+                // Especial rule for double letters
+                if (c == 'C') {
+                    // We have "cc". The first "c" has already been mapped
+                    // to "K".
+                    if (!(i < n - 1 && isFrontVowel(input[i + 1]))) {
+                        // This "cc" is just one sound
+                        continue;
+                    }
+                    // else let it do cc[eiy] -> KS
+                } else {
+                    // It is not "cc", so ignore the second letter
+                    continue;
+                }
+            }
+            char out = 0;
+            switch (c) {
+
+                case 'A':
+                case 'E':
+                case 'I':
+                case 'O':
+                case 'U':
+                    // Keep a vowel only if it is the first letter
+                    if (i == 0) {
+                        out = c;
+                    }
+                    break;
+
+                case 'F':
+                case 'J':
+                case 'L':
+                case 'M':
+                case 'N':
+                case 'R':
+                    out = c;
+                    break;
+                case 'Q':
+                case 'V':
+                case 'Z':
+                    out = map(c);
+                    break;
+
+                // B -> B only if NOT MB$
+                case 'B':
+                    if (!(i == n - 1 && codeIndex > 0 && (code & 0xFF) == 'M')) {
+                        out = c;
+                    }
+                    break;
+
+                case 'C':
+                    if (i < n - 2 && input[i + 1] == 'I' && input[i + 2] == 'A') {
+                        out = 'X';
+                    } else if (i < n - 1 && input[i + 1] == 'H' && i > 0 && input[i - 1] != 'S') {
+                        out = 'X';
+                    } else if (i < n - 1 && isFrontVowel(input[i + 1])) {
+                        out = 'S';
+                    } else {
+                        out = 'K';
+                    }
+                    break;
+
+                case 'D':
+                    if (i < n - 2 && input[i + 1] == 'G' && isFrontVowel(input[i + 2])) {
+                        out = 'J';
+                    } else {
+                        out = 'T';
+                    }
+                    break;
+
+                case 'G':
+                    if (i < n - 1 && input[i + 1] == 'N') {
+                        // GN -> N [GNED -> NED]
+                    } else if (i > 0 && input[i - 1] == 'D' && i < n - 1 && isFrontVowel(input[i + 1])) {
+                        // DG[IEY] -> D[IEY]
+                    } else if (i < n - 1 && input[i + 1] == 'H' && (i + 2 == n || !isVowel(input[i + 2]))) {
+                        // GH not before a vowel is silent
+                    } else if (i < n - 1 && isFrontVowel(input[i + 1])) {
+                        out = 'J';
+                    } else {
+                        out = map(c);
+                    }
+                    break;
+
+                case 'H':
+                    if (i > 0 && "AEIOUCGPST".indexOf(input[i - 1]) >= 0) {
+                        // vH -> v
+                    } else if (i < n - 1 && !isVowel(input[i + 1])) {
+                        // Hc -> c
+                    } else {
+                        out = c;
+                    }
+                    break;
+
+                case 'K':
+                    if (!(i > 0 && input[i - 1] == 'C')) {
+                        // CK -> K
+                        out = map(c);
+                    }
+                    break;
+
+                case 'P':
+                    if (i < n - 1 && input[i + 1] == 'H') {
+                        out = 'F';
+                    } else {
+                        out = map(c);
+                    }
+                    break;
+
+                case 'S':
+                    if (i < n - 2 && input[i + 1] == 'I' && (input[i + 2] == 'A' || input[i + 2] == 'O')) {
+                        out = 'X';
+                    } else if (i < n - 1 && input[i + 1] == 'H') {
+                        out = 'X';
+                    } else {
+                        out = 'S';
+                    }
+                    break;
+
+                case 'T':
+                    // -TI[AO]- -> -XI[AO]-
+                    // -TCH- -> -CH-
+                    // -TH- -> -0-
+                    // -T- -> -T-
+                    if (i < n - 2 && input[i + 1] == 'I' && (input[i + 2] == 'A' || input[i + 2] == 'O')) {
+                        out = 'X';
+                    } else if (i < n - 1 && input[i + 1] == 'H') {
+                        out = '0';
+                    } else if (i < n - 2 && input[i + 1] == 'C' && input[i + 2] == 'H') {
+                        // drop letter
+                    } else {
+                        out = 'T';
+                    }
+                    break;
+
+                case 'W':
+                case 'Y':
+                    // -Wv- -> -Wv-; -Wc- -> -c-
+                    // -Yv- -> -Yv-; -Yc- -> -c-
+                    if (i < n - 1 && isVowel(input[i + 1])) {
+                        out = map(c);
+                    }
+                    break;
+
+                case 'X':
+                    // -X- -> -KS-
+                    code = (code << 8) | 'K';
+                    codeIndex++;
+                    if (codeIndex < CODE_LENGTH) {
+                        out = 'S';
+                    }
+                    break;
+
+                default:
+                    assert (false);
+            }
+            if (out != 0) {
+                code = (code << 8) | out;
+                codeIndex++;
+            }
+            prev = c;
+        }
+        return code;
+    }
+
+    /**
+     * Number of characters of the code.
+     */
+    public static int length(long code) {
+        return (64 - Long.numberOfLeadingZeros(code) + 7) / 8;
+    }
+
+    /**
+     * The code as a String.
+     */
+    public static String toString(long code) {
+        int length = length(code);
+        char[] chars = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            chars[i] = (char) (code & 0xFF);
+            code >>>= 8;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,86 @@
+package ir;
+
+/**
+ * Postings of one term across several segments, returned one segment after
+ * the other with the segment's doc base added to its doc ids.
+ */
+class MultiPostingsIterator extends PostingsIterator {
+
+    private final PostingsIterator[] subs;
+    private final int[] docBases;
+    private final int cost;
+    private int current = 0;
+    private int docId = -1;
+
+    MultiPostingsIterator(PostingsIterator[] subs, int[] docBases) {
+        this.subs = subs;
+        this.docBases = docBases;
+        int sum = 0;
+        for (PostingsIterator sub : subs) {
+            if (sub != null) {
+                sum += sub.cost();
+            }
+        }
+        cost = sum;
+    }
+
+    @Override
+    public int nextDoc() {
+        while (current < subs.length) {
+            if (subs[current] != null && subs[current].nextDoc() != NO_MORE_DOCS) {
+                return docId = docBases[current] + subs[current].docId();
+            }
+            current++;
+        }
+        return docId = NO_MORE_DOCS;
+    }
+
+    @Override
+    public int advance(int target) {
+        // segments ending before target are skipped without decoding them
+        while (current + 1 < subs.length && docBases[current + 1] <= target) {
+            current++;
+        }
+        if (current < subs.length && subs[current] != null
+                && subs[current].advance(target - docBases[current]) != NO_MORE_DOCS) {
+            return docId = docBases[current] + subs[current].docId();
+        }
+        current++;
+        return nextDoc();
+    }
+
+    @Override
+    public int docId() {
+        return docId;
+    }
+
+    @Override
+    public int freq() {
+        return subs[current].freq();
+    }
+
+    @Override
+    public int docLength() {
+        return subs[current].docLength();
+    }
+
+    @Override
+    public int cost() {
+        return cost;
+    }
+
+    @Override
+    public int nextPosition() {
+        return subs[current].nextPosition();
+    }
+
+    @Override
+    public int startOffset() {
+        return subs[current].startOffset();
+    }
+
+    @Override
+    public int endOffset() {
+        return subs[current].endOffset();
+    }
+}
@@ -0,0 +1,266 @@
+package ir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.json.JSONException;
+
+/**
+ * Builds the index on all cores. The documents (json records first, then the
+ * corpus files that are not already in the json) are read in batches; each
+ * batch is split into chunks that are analyzed in parallel, each into its own
+ * partial IndexWriter, and partial writers are appended in document order so
+ * ids match a serial build. All writers share one term dictionary, so
+ * appending them needs no term lookups. Building into an IndexDirectory
+ * flushes every batch as a segment of its own, so only one batch of text is
+ * held at a time; build() keeps all of it in the returned writer.
+ */
+public class ParallelIndexBuilder {
+
+    private static final int CHUNK_SIZE = 64;
+    private static final int BATCH_SIZE = 4096;
+    // -Dir.cacheStats=true prints the hit rate of the term cache after every
+    // build
+    private static final boolean CACHE_STATS = Boolean.getBoolean("ir.cacheStats");
+
+    private final Tokenizer tokenizer;
+    private final boolean positions;
+    private final List<String> jsonFiles = new ArrayList<String>();
+    private final List<File> corpusDirs = new ArrayList<File>();
+    private final HashSet<String> requestIds = new HashSet<String>();
+
+    public ParallelIndexBuilder() {
+        this(Tokenizer.PTB);
+    }
+
+    public ParallelIndexBuilder(Tokenizer tokenizer) {
+        this(tokenizer, false);
+    }
+
+    /**
+     * Creates a builder whose index keeps the positions of the terms if
+     * positions is set.
+     */
+    public ParallelIndexBuilder(Tokenizer tokenizer, boolean positions) {
+        this.tokenizer = tokenizer;
+        this.positions = positions;
+    }
+
+    /**
+     * Skips the given requests, for example because they are already
+     * indexed.
+     */
+    public void exclude(Collection<String> ids) {
+        requestIds.addAll(ids);
+    }
+
+    /**
+     * Adds the "request_text" of every record of the json dataset that is
+     * not excluded.
+     */
+    public void addJson(String jsonFile) {
+        jsonFiles.add(jsonFile);
+    }
+
+    /**
+     * Adds the t3_*.txt files of the corpus directory, skipping requests
+     * already added from the json dataset or excluded.
+     */
+    public void addCorpus(File corpusDir) {
+        corpusDirs.add(corpusDir);
+    }
+
+    // A document waiting to be analyzed, the text of corpus files is read
+    // by the task analyzing it
+    private static class Document {
+
+        final String requestId;
+        final String text;
+        final File file;
+
+        Document(String requestId, String text, File file) {
+            this.requestId = requestId;
+            this.text = text;
+            this.file = file;
+        }
+
+        CharSequence text() {
+            if (text != null) {
+                return text;
+            }
+            try {
+                return StandardCharsets.UTF_8.decode(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    private static class IndexTask extends RecursiveTask<IndexWriter> {
+
+        private final Tokenizer tokenizer;
+        private final boolean positions;
+        private final TermDictionary dictionary;
+        private final List<Document> batch;
+        private final int from;
+        private final int to;
+
+        IndexTask(Tokenizer tokenizer, boolean positions, TermDictionary dictionary, List<Document> batch, int from, int to) {
+            this.tokenizer = tokenizer;
+            this.positions = positions;
+            this.dictionary = dictionary;
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IndexWriter compute() {
+            if (to - from <= CHUNK_SIZE) {
+                IndexWriter writer = new IndexWriter(dictionary, positions);
+                for (int doc = from; doc < to; doc++) {
+                    Document document = batch.get(doc);
+                    CharSequence text = document.text();
+                    writer.addDocument(document.requestId, text, Analyzer.analyze(text, tokenizer, dictionary, positions));
+                }
+                return writer;
+            }
+            int mid = (from + to) >>> 1;
+            IndexTask left = new IndexTask(tokenizer, positions, dictionary, batch, from, mid);
+            left.fork();
+            IndexWriter right = new IndexTask(tokenizer, positions, dictionary, batch, mid, to).compute();
+            IndexWriter writer = left.join();
+            writer.append(right);
+            return writer;
+        }
+    }
+
+    // Receives the partial index of every batch in document order
+    private interface BatchSink {
+
+        void accept(IndexWriter batch) throws IOException;
+    }
+
+    private void index(TermDictionary dictionary, List<Document> batch, BatchSink sink) throws IOException {
+        IndexWriter writer;
+        try {
+            writer = ForkJoinPool.commonPool().invoke(new IndexTask(tokenizer, positions, dictionary, batch, 0, batch.size()));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        batch.clear();
+        sink.accept(writer);
+    }
+
+    /**
+     * Analyzes all added documents and returns the merged index, which holds
+     * the text of all of them until it is written.
+     */
+    public IndexWriter build() throws JSONException, IOException {
+        final IndexWriter writer = new IndexWriter(new TermDictionary(), positions);
+        build(writer.dictionary(), new BatchSink() {
+            @Override
+            public void accept(IndexWriter batch) {
+                writer.append(batch);
+            }
+        });
+        return writer;
+    }
+
+    /**
+     * Analyzes all added documents and flushes every batch into a new segment
+     * of the directory, leaving it to the merge policy to merge them.
+     */
+    public void build(final IndexDirectory directory) throws JSONException, IOException {
+        build(new TermDictionary(), new BatchSink() {
+            @Override
+            public void accept(IndexWriter batch) throws IOException {
+                directory.flush(batch);
+            }
+        });
+    }
+
+    private void build(TermDictionary dictionary, BatchSink sink) throws JSONException, IOException {
+        long start = System.nanoTime();
+        int numDocs = 0;
+        List<Document> batch = new ArrayList<Document>(BATCH_SIZE);
+        for (String jsonFile : jsonFiles) {
+            JsonRecordReader reader = new JsonRecordReader(jsonFile, "request_id", "request_text");
+            try {
+                Map<String, String> record;
+                while ((record = reader.next()) != null) {
+                    String requestId = record.containsKey("request_id") ? record.get("request_id") : "";
+                    String text = record.containsKey("request_text") ? record.get("request_text") : "";
+                    // records without an id cannot be told apart, keep them all
+                    if (requestId.isEmpty() || requestIds.add(requestId)) {
+                        batch.add(new Document(requestId, text, null));
+                        if (batch.size() == BATCH_SIZE) {
+                            numDocs += batch.size();
+                            index(dictionary, batch, sink);
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        for (File corpusDir : corpusDirs) {
+            File[] corpus = corpusDir.listFiles();
+            if (corpus == null) {
+                continue;
+            }
+            Arrays.sort(corpus);
+            for (File file : corpus) {
+                String name = file.getName();
+                if (name.endsWith(".txt") && requestIds.add(name.substring(0, name.length() - 4))) {
+                    batch.add(new Document(name.substring(0, name.length() - 4), null, file));
+                    if (batch.size() == BATCH_SIZE) {
+                        numDocs += batch.size();
+                        index(dictionary, batch, sink);
+                    }
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            numDocs += batch.size();
+            index(dictionary, batch, sink);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Logger.getLogger(ParallelIndexBuilder.class.getName()).log(Level.FINE,
+                "Indexed {0} documents in {1} s ({2} docs/s, {3} threads)", new Object[]{numDocs,
+                    String.format("%.2f", seconds), String.format("%.0f", numDocs / seconds),
+                    ForkJoinPool.commonPool().getParallelism()});
+        if (CACHE_STATS) {
+            System.out.println(Analyzer.cache());
+        }
+    }
+
+    /**
+     * Flushes the documents not indexed yet into new segments, one per batch:
+     * the json dataset when the index is still empty, and the corpus files
+     * that were added since the last update.
+     */
+    public static void update(IndexDirectory directory, String jsonFile, File corpusDir) throws JSONException, IOException {
+        SegmentedIndex index = directory.current();
+        ParallelIndexBuilder builder = new ParallelIndexBuilder(directory.tokenizer(), directory.positions());
+        builder.exclude(index.requestIds());
+        if (index.numDocs() == 0 && new File(jsonFile).exists()) {
+            builder.addJson(jsonFile);
+        }
+        builder.addCorpus(corpusDir);
+        builder.build(directory);
+    }
+}
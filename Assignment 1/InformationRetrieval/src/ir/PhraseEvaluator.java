@@ -0,0 +1,227 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Evaluates queries with quoted phrases, which every result must match. The
+ * postings of all phrase terms are intersected first, the rarest term
+ * leading and the others catching up with advance(); only the documents
+ * containing all of them have the position lists of their terms merged to
+ * find the phrase matches, so a phrase query costs little more than the AND
+ * of its terms. A phrase is scored as its terms with the number of matches
+ * as frequency (Similarity.phraseScore), the unquoted terms of the query
+ * only add to the scores of the documents matching the phrases.
+ */
+public class PhraseEvaluator {
+
+    public TopDocs evaluate(SegmentedIndex index, List<PhraseQuery> phrases, TreeMap<String, Integer> queryMap,
+            Similarity similarity, int k) {
+        int totalDocuments = index.numDocs();
+        double avgDocLength = index.avgDocLength();
+        TopKSelector selector = new TopKSelector(k);
+
+        // one cursor per distinct phrase term, the slots of the terms of
+        // every phrase, and the cursors whose positions are needed
+        Map<String, Integer> slots = new HashMap<String, Integer>();
+        List<PostingsIterator> cursors = new ArrayList<PostingsIterator>();
+        int[][] phraseSlots = new int[phrases.size()][];
+        double[][] phraseIdfs = new double[phrases.size()][];
+        for (int p = 0; p < phrases.size(); p++) {
+            List<String> terms = phrases.get(p).terms();
+            phraseSlots[p] = new int[terms.size()];
+            phraseIdfs[p] = new double[terms.size()];
+            for (int i = 0; i < terms.size(); i++) {
+                Integer slot = slots.get(terms.get(i));
+                if (slot == null) {
+                    PostingsIterator cursor = index.postings(terms.get(i));
+                    if (cursor == null) {
+                        // a phrase term no document has, nothing matches
+                        return selector.topDocs();
+                    }
+                    slot = cursors.size();
+                    slots.put(terms.get(i), slot);
+                    cursors.add(cursor);
+                }
+                phraseSlots[p][i] = slot;
+                phraseIdfs[p][i] = similarity.idf(totalDocuments, cursors.get(slot).cost());
+            }
+        }
+        int numSlots = cursors.size();
+        boolean[] needsPositions = new boolean[numSlots];
+        for (int[] phrase : phraseSlots) {
+            for (int slot : phrase) {
+                needsPositions[slot] |= phrase.length > 1;
+            }
+        }
+        int[][] positions = new int[numSlots][16];
+        int[] counts = new int[numSlots];
+
+        PostingsIterator[] required = cursors.toArray(new PostingsIterator[numSlots]);
+        Arrays.sort(required, new Comparator<PostingsIterator>() {
+            @Override
+            public int compare(PostingsIterator a, PostingsIterator b) {
+                return Integer.compare(a.cost(), b.cost());
+            }
+        });
+
+        PostingsIterator[] optional = new PostingsIterator[queryMap.size()];
+        double[] idfs = new double[queryMap.size()];
+        int n = 0;
+        for (String key : queryMap.keySet()) {
+            PostingsIterator cursor = index.postings(key);
+            if (cursor != null) {
+                idfs[n] = similarity.idf(totalDocuments, cursor.cost());
+                optional[n++] = cursor;
+            }
+        }
+
+        PostingsIterator lead = required[0];
+        int doc = lead.nextDoc();
+        while (doc != PostingsIterator.NO_MORE_DOCS) {
+            int t = 1;
+            for (; t < required.length; t++) {
+                int d = required[t].docId();
+                if (d < doc) {
+                    d = required[t].advance(doc);
+                }
+                if (d > doc) {
+                    break;
+                }
+            }
+            if (t < required.length) {
+                int target = required[t].docId();
+                doc = target == PostingsIterator.NO_MORE_DOCS ? target : lead.advance(target);
+                continue;
+            }
+
+            // every phrase term is in the document, merge their positions
+            for (int s = 0; s < numSlots; s++) {
+                if (needsPositions[s]) {
+                    PostingsIterator cursor = cursors.get(s);
+                    int freq = cursor.freq();
+                    if (freq > positions[s].length) {
+                        positions[s] = new int[Math.max(freq, 2 * positions[s].length)];
+                    }
+                    for (int j = 0; j < freq; j++) {
+                        positions[s][j] = cursor.nextPosition();
+                    }
+                    counts[s] = freq;
+                }
+            }
+            int docLength = lead.docLength();
+            double score = similarity.neutral();
+            boolean matches = true;
+            for (int p = 0; p < phraseSlots.length && matches; p++) {
+                double freq = phraseSlots[p].length == 1 ? cursors.get(phraseSlots[p][0]).freq()
+                        : phraseFreq(positions, counts, phraseSlots[p], phrases.get(p).slop());
+                matches = freq > 0;
+                score = similarity.combine(score, similarity.phraseScore(phraseIdfs[p], freq, docLength, avgDocLength));
+            }
+            if (matches) {
+                for (int o = 0; o < n; o++) {
+                    if (optional[o].docId() < doc) {
+                        optional[o].advance(doc);
+                    }
+                    if (optional[o].docId() == doc) {
+                        score = similarity.combine(score, similarity.termScore(idfs[o],
+                                optional[o].freq(), docLength, avgDocLength));
+                    }
+                }
+                selector.collect(doc, score);
+            }
+            doc = lead.nextDoc();
+        }
+        return selector.topDocs();
+    }
+
+    /**
+     * Frequency of a phrase in a document, positions[slots[i]] holding the
+     * counts[slots[i]] positions of its i-th term in increasing order. The
+     * occurrences are shifted back by their place in the phrase and merged;
+     * a window of one occurrence per term spreading over a distance of at
+     * most slop is a match counting 1 / (1 + distance), so with slop 0 this
+     * is the number of exact matches. A term repeated in the phrase takes a
+     * different occurrence for each of its places, and after a match every
+     * term moves on to its next occurrence, so no window is counted twice.
+     */
+    static double phraseFreq(int[][] positions, int[] counts, int[] slots, int slop) {
+        // next[i] is the occurrence the i-th term is at; the places of a
+        // repeated term are kept at increasing occurrences
+        int[] next = new int[slots.length];
+        separate(next, slots, 1);
+        double freq = 0;
+        while (true) {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            int minTerm = 0;
+            for (int i = 0; i < slots.length; i++) {
+                if (next[i] >= counts[slots[i]]) {
+                    return freq;
+                }
+                int at = positions[slots[i]][next[i]] - i;
+                if (at < min) {
+                    min = at;
+                    minTerm = i;
+                }
+                max = Math.max(max, at);
+            }
+            if (max - min <= slop) {
+                freq += 1.0 / (1 + max - min);
+                for (int i = 0; i < slots.length; i++) {
+                    next[i]++;
+                }
+            } else {
+                next[minTerm]++;
+                separate(next, slots, minTerm + 1);
+            }
+        }
+    }
+
+    // Moves the places from first on of a repeated term past the
+    // occurrence of its previous place
+    private static void separate(int[] next, int[] slots, int first) {
+        for (int i = first; i < slots.length; i++) {
+            for (int j = i - 1; j >= 0; j--) {
+                if (slots[j] == slots[i]) {
+                    next[i] = Math.max(next[i], next[j] + 1);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Length in tokens of the shortest part of a document holding an
+     * occurrence of each of the n terms, in any order, positions[i] holding
+     * the counts[i] positions of term i in increasing order.
+     */
+    static int minimalSpan(int[][] positions, int[] counts, int n) {
+        int[] next = new int[n];
+        int best = Integer.MAX_VALUE;
+        while (best > n) {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            int minTerm = 0;
+            for (int i = 0; i < n; i++) {
+                if (next[i] == counts[i]) {
+                    return best;
+                }
+                int at = positions[i][next[i]];
+                if (at < min) {
+                    min = at;
+                    minTerm = i;
+                }
+                max = Math.max(max, at);
+            }
+            best = Math.min(best, max - min + 1);
+            next[minTerm]++;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,88 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A quoted part of a query, "pay it forward": its terms must occur in a
+ * document one after the other. With a slop, "pay forward"~2, they may be
+ * up to slop positions away from where the phrase puts them, in any order,
+ * and closer matches count more.
+ */
+public class PhraseQuery {
+
+    private static final Pattern QUOTED = Pattern.compile("\"([^\"]*)\"(?:~(\\d+))?");
+    // farther than the terms of any request can be apart, larger slops
+    // match the same documents
+    static final int MAX_SLOP = 100000;
+
+    private final List<String> terms;
+    private final int slop;
+
+    public PhraseQuery(List<String> terms, int slop) {
+        this.terms = Collections.unmodifiableList(new ArrayList<String>(terms));
+        this.slop = slop;
+    }
+
+    /**
+     * The phrases quoted in the query, analyzed into terms with the
+     * tokenizer. Empty phrases are left out, and slops above MAX_SLOP are
+     * lowered to it.
+     */
+    public static List<PhraseQuery> parse(String query, Tokenizer tokenizer) {
+        List<PhraseQuery> phrases = new ArrayList<PhraseQuery>();
+        Matcher m = QUOTED.matcher(query);
+        while (m.find()) {
+            List<String> terms = new ArrayList<String>();
+            Iterator<String> tokens = tokenizer.tokens(m.group(1));
+            while (tokens.hasNext()) {
+                terms.add(Analyzer.term(tokens.next()));
+            }
+            if (!terms.isEmpty()) {
+                phrases.add(new PhraseQuery(terms, slop(m.group(2))));
+            }
+        }
+        return phrases;
+    }
+
+    private static int slop(String digits) {
+        if (digits == null) {
+            return 0;
+        }
+        // too many digits for an int are a large slop as well
+        String significant = digits.replaceFirst("^0+(?=.)", "");
+        return significant.length() > 6 ? MAX_SLOP : Math.min(Integer.parseInt(significant), MAX_SLOP);
+    }
+
+    /**
+     * The query without its quoted phrases.
+     */
+    public static String strip(String query) {
+        return QUOTED.matcher(query).replaceAll(" ");
+    }
+
+    /**
+     * The terms of the phrase in order, repeated terms included.
+     */
+    public List<String> terms() {
+        return terms;
+    }
+
+    public int slop() {
+        return slop;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder("\"");
+        for (String term : terms) {
+            s.append(s.length() > 1 ? " " : "").append(term);
+        }
+        s.append('"');
+        return slop == 0 ? s.toString() : s.append('~').append(slop).toString();
+    }
+}
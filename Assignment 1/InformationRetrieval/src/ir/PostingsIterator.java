@@ -0,0 +1,70 @@
+package ir;
+
+/**
+ * Walks the postings of one term in increasing doc id order.
+ */
+public abstract class PostingsIterator {
+
+    public static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    /**
+     * Moves to the next document and returns its id, or NO_MORE_DOCS.
+     */
+    public abstract int nextDoc();
+
+    /**
+     * Moves to the first document whose id is at least target and returns
+     * it, or NO_MORE_DOCS. target must be greater than the current doc id.
+     */
+    public int advance(int target) {
+        int doc = docId();
+        while (doc < target) {
+            doc = nextDoc();
+        }
+        return doc;
+    }
+
+    /**
+     * Current document, -1 before the first call to nextDoc().
+     */
+    public abstract int docId();
+
+    /**
+     * Frequency of the term in the current document.
+     */
+    public abstract int freq();
+
+    /**
+     * Number of tokens of the current document.
+     */
+    public abstract int docLength();
+
+    /**
+     * Number of documents this iterator will return at most.
+     */
+    public abstract int cost();
+
+    /**
+     * Moves to the next occurrence of the term in the current document and
+     * returns its position, the number of tokens before it. Can be called
+     * freq() times per document, and only on indexes with positions.
+     */
+    public int nextPosition() {
+        throw new UnsupportedOperationException("The index has no positions");
+    }
+
+    /**
+     * Offset in the document text of the first character of the current
+     * occurrence.
+     */
+    public int startOffset() {
+        throw new UnsupportedOperationException("The index has no positions");
+    }
+
+    /**
+     * Offset in the document text just past the current occurrence.
+     */
+    public int endOffset() {
+        throw new UnsupportedOperationException("The index has no positions");
+    }
+}
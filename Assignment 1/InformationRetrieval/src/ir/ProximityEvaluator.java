@@ -0,0 +1,89 @@
+package ir;
+
+import java.util.TreeMap;
+
+/**
+ * Evaluates a query one document at a time like DocAtATimeEvaluator, and
+ * rewards documents where the query terms are close together: a document
+ * containing every query term also scores the whole query as an unordered
+ * phrase whose frequency is 1 / (1 + d), d being the number of other tokens
+ * in the shortest part of the document holding all the terms. Position lists
+ * are only merged for those documents. On an index without positions, or for
+ * a single term, this is DocAtATimeEvaluator.
+ */
+public class ProximityEvaluator extends QueryEvaluator {
+
+    @Override
+    public TopDocs evaluate(SegmentedIndex index, TreeMap<String, Integer> queryMap, Similarity similarity, int k) {
+        int totalDocuments = index.numDocs();
+        double avgDocLength = index.avgDocLength();
+        double neutral = similarity.neutral();
+        PostingsIterator[] postings = new PostingsIterator[queryMap.size()];
+        double[] idfs = new double[queryMap.size()];
+        int n = 0;
+        for (String key : queryMap.keySet()) {
+            PostingsIterator cursor = index.postings(key);
+            if (cursor != null) {
+                idfs[n] = similarity.idf(totalDocuments, cursor.cost());
+                cursor.nextDoc();
+                postings[n++] = cursor;
+            }
+        }
+        // a term no document has rules out every document
+        boolean proximity = n > 1 && n == queryMap.size() && index.hasPositions();
+        int[][] positions = new int[n][16];
+        int[] counts = new int[n];
+
+        TopKSelector selector = new TopKSelector(k);
+        int remaining = k;
+        int next = 0;
+        while (true) {
+            int doc = PostingsIterator.NO_MORE_DOCS;
+            int matched = 0;
+            for (int t = 0; t < n; t++) {
+                int d = postings[t].docId();
+                if (d < doc) {
+                    doc = d;
+                    matched = 1;
+                } else if (d == doc) {
+                    matched++;
+                }
+            }
+            if (doc == PostingsIterator.NO_MORE_DOCS) {
+                break;
+            }
+            double phraseScore = neutral;
+            if (proximity && matched == n) {
+                for (int t = 0; t < n; t++) {
+                    int freq = postings[t].freq();
+                    if (freq > positions[t].length) {
+                        positions[t] = new int[Math.max(freq, 2 * positions[t].length)];
+                    }
+                    for (int j = 0; j < freq; j++) {
+                        positions[t][j] = postings[t].nextPosition();
+                    }
+                    counts[t] = freq;
+                }
+                int span = PhraseEvaluator.minimalSpan(positions, counts, n);
+                phraseScore = similarity.phraseScore(idfs, 1.0 / (1 + span - n), postings[0].docLength(), avgDocLength);
+            }
+            // terms are combined in query term order, then the phrase
+            double score = neutral;
+            for (int t = 0; t < n; t++) {
+                if (postings[t].docId() == doc) {
+                    score = similarity.combine(score, similarity.termScore(idfs[t],
+                            postings[t].freq(), postings[t].docLength(), avgDocLength));
+                    postings[t].nextDoc();
+                }
+            }
+            if (proximity && matched == n) {
+                score = similarity.combine(score, phraseScore);
+            }
+            remaining = collectUnmatched(selector, next, doc, remaining, neutral);
+            selector.collect(doc, score);
+            next = doc + 1;
+        }
+        collectUnmatched(selector, next, totalDocuments, remaining, neutral);
+        return selector.topDocs();
+    }
+}
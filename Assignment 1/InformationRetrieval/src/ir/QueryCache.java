@@ -0,0 +1,143 @@
+package ir;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Results of recent searches, so that running the same query again (pressing
+ * Enter twice, changing k back and forth) costs no evaluation. Entries are
+ * keyed by the analyzed query terms with their frequencies, the ranking
+ * model, k and the generation of the index view; queries that differ only in
+ * case, punctuation or word forms share an entry. Results of older
+ * generations are dropped as soon as a newer view is searched. When full,
+ * the least recently used entry is evicted.
+ */
+public class QueryCache {
+
+    private final int maxSize;
+    private final LinkedHashMap<Key, TopDocs> entries;
+    private long generation = -1;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    private static final class Key {
+
+        final TreeMap<String, Integer> terms;
+        final String similarity;
+        final int k;
+        final long generation;
+        final int hash;
+
+        Key(TreeMap<String, Integer> terms, Similarity similarity, int k, long generation) {
+            this.terms = terms;
+            this.similarity = similarity.name();
+            this.k = k;
+            this.generation = generation;
+            int h = terms.hashCode();
+            h = 31 * h + this.similarity.hashCode();
+            h = 31 * h + k;
+            h = 31 * h + (int) (generation ^ (generation >>> 32));
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && k == other.k && generation == other.generation
+                    && similarity.equals(other.similarity) && terms.equals(other.terms);
+        }
+    }
+
+    public QueryCache(final int maxSize) {
+        this.maxSize = maxSize;
+        entries = new LinkedHashMap<Key, TopDocs>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, TopDocs> eldest) {
+                if (size() > maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * The cached results, or null if the query has to be evaluated. The
+     * terms must not be changed afterwards.
+     */
+    public synchronized TopDocs get(SegmentedIndex index, TreeMap<String, Integer> terms, Similarity similarity, int k) {
+        if (index.generation() > generation) {
+            invalidations += entries.size();
+            entries.clear();
+            generation = index.generation();
+        }
+        TopDocs topDocs = entries.get(new Key(terms, similarity, k, index.generation()));
+        if (topDocs == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return topDocs;
+    }
+
+    public synchronized void put(SegmentedIndex index, TreeMap<String, Integer> terms, Similarity similarity, int k, TopDocs topDocs) {
+        // results of an older view that finished late are not worth keeping
+        if (index.generation() == generation) {
+            entries.put(new Key(terms, similarity, k, index.generation()), topDocs);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Entries removed to stay within maxSize.
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * Entries dropped because the index was updated.
+     */
+    public synchronized long invalidations() {
+        return invalidations;
+    }
+
+    public synchronized double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Query cache: " + entries.size() + "/" + maxSize + " entries, " + hits + " hits, " + misses
+                + " misses (" + String.format("%.1f", 100 * hitRate()) + "% hit rate), " + evictions
+                + " evicted, " + invalidations + " invalidated";
+    }
+}
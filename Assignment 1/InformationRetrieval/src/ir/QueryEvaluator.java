@@ -0,0 +1,27 @@
+package ir;
+
+import java.util.TreeMap;
+
+/**
+ * Scores the documents of an index for a query under a ranking model and
+ * returns the best k. Evaluators only walk the postings of the query terms;
+ * documents containing none of them keep the model's neutral score without
+ * being scored one by one.
+ */
+public abstract class QueryEvaluator {
+
+    public abstract TopDocs evaluate(SegmentedIndex index, TreeMap<String, Integer> queryMap, Similarity similarity, int k);
+
+    /**
+     * Offers the documents of [from, to) that matched no query term with the
+     * neutral score and returns how many more may still be offered. Among
+     * unmatched documents only the k lowest ids can ever be in the top k, so
+     * callers start with remaining = k.
+     */
+    protected static int collectUnmatched(TopKSelector selector, int from, int to, int remaining, double neutral) {
+        for (int doc = from; doc < to && remaining > 0; doc++, remaining--) {
+            selector.collect(doc, neutral);
+        }
+        return remaining;
+    }
+}
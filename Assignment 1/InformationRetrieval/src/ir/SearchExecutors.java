@@ -0,0 +1,47 @@
+package ir;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors running searches away from the caller's thread. On a JVM with
+ * virtual threads (Java 21 and later) every task gets its own virtual thread;
+ * the project is compiled for Java 8, so they are looked up by reflection.
+ * Elsewhere a fixed pool of daemon threads is used. Services that size
+ * their worker pool explicitly use a plain fixed pool.
+ */
+final class SearchExecutors {
+
+    private SearchExecutors() {
+    }
+
+    /**
+     * A virtual thread per task executor if the JVM has one, otherwise a
+     * pool of that many daemon threads called name-1, name-2...
+     */
+    static ExecutorService newExecutor(String name, int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            // before Java 21
+        }
+        return newPool(name, threads, true);
+    }
+
+    /**
+     * A pool of that many threads called name-1, name-2...
+     */
+    static ExecutorService newPool(final String name, int threads, final boolean daemon) {
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+                thread.setDaemon(daemon);
+                return thread;
+            }
+        });
+    }
+}
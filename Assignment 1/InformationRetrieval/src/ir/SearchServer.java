@@ -0,0 +1,208 @@
+package ir;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Headless search service. The index is loaded (and brought up to date) once,
+ * then queries are answered over HTTP with JSON:
+ *
+ * GET /search?q=...&k=10 the k best documents, "doc" is the number shown
+ * by the UI
+ * GET /doc/{doc} the text of a document
+ *
+ * Ranking is the same as in the UI (-Dir.similarity, the index's tokenizer,
+ * MaxScore evaluation). Requests are served by a pool of -Dir.threads
+ * workers, all searching the latest view of the shared read-only index.
+ *
+ * Usage: SearchServer [port [indexDir [jsonFile [corpusDir]]]]
+ */
+public class SearchServer {
+
+    private static final int MAX_K = 1000;
+
+    private final IndexDirectory indexDirectory;
+    private final Similarity similarity;
+    private final QueryCache queryCache = new QueryCache(1024);
+
+    public SearchServer(IndexDirectory indexDirectory, Similarity similarity) {
+        this.indexDirectory = indexDirectory;
+        this.similarity = similarity;
+    }
+
+    /**
+     * Starts serving on the port with that many worker threads.
+     */
+    public HttpServer start(int port, int threads) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange, true);
+            }
+        });
+        server.createContext("/doc/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange, false);
+            }
+        });
+        server.setExecutor(SearchExecutors.newPool("http", threads, false));
+        server.start();
+        return server;
+    }
+
+    private void serve(HttpExchange exchange, boolean search) throws IOException {
+        int status = 200;
+        JSONObject body;
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                status = 405;
+                body = error("Only GET is supported");
+            } else if (search) {
+                body = search(parameters(exchange.getRequestURI().getRawQuery()));
+            } else {
+                body = document(exchange.getRequestURI().getPath().substring("/doc/".length()));
+            }
+        } catch (IllegalArgumentException ex) {
+            status = 400;
+            body = error(ex.getMessage());
+        } catch (NotFound ex) {
+            status = 404;
+            body = error(ex.getMessage());
+        } catch (JSONException | IOException | RuntimeException ex) {
+            Logger.getLogger(SearchServer.class.getName()).log(Level.SEVERE, null, ex);
+            status = 500;
+            body = error("Internal error");
+        }
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static class NotFound extends Exception {
+
+        NotFound(String message) {
+            super(message);
+        }
+    }
+
+    private static JSONObject error(String message) {
+        JSONObject error = new JSONObject();
+        try {
+            error.put("error", message);
+        } catch (JSONException ex) {
+            // the key is not null
+        }
+        return error;
+    }
+
+    private static Map<String, String> parameters(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<String, String>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), "UTF-8");
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), "UTF-8");
+            parameters.put(name, value);
+        }
+        return parameters;
+    }
+
+    private JSONObject search(Map<String, String> parameters) throws JSONException {
+        String query = parameters.get("q");
+        if (query == null || query.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing query parameter q");
+        }
+        int k = 10;
+        if (parameters.containsKey("k")) {
+            try {
+                k = Integer.parseInt(parameters.get("k"));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("k must be a number");
+            }
+            if (k < 1 || k > MAX_K) {
+                throw new IllegalArgumentException("k must be between 1 and " + MAX_K);
+            }
+        }
+        long start = System.nanoTime();
+        SegmentedIndex index = indexDirectory.current();
+        TopDocs topDocs = new Searcher(index, queryCache).search(query, similarity, k);
+        JSONArray hits = new JSONArray();
+        for (int i = 0; i < topDocs.size(); i++) {
+            JSONObject hit = new JSONObject();
+            hit.put("doc", topDocs.docId(i) + 1);
+            hit.put("request_id", index.requestId(topDocs.docId(i)));
+            hit.put("score", topDocs.score(i));
+            hits.put(hit);
+        }
+        JSONObject result = new JSONObject();
+        result.put("query", query);
+        result.put("k", k);
+        result.put("model", similarity.name());
+        result.put("generation", index.generation());
+        result.put("hits", hits);
+        result.put("took_ms", (System.nanoTime() - start) / 1e6);
+        return result;
+    }
+
+    private JSONObject document(String path) throws JSONException, IOException, NotFound {
+        SegmentedIndex index = indexDirectory.current();
+        int doc;
+        try {
+            doc = Integer.parseInt(path) - 1;
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Not a document number: " + path);
+        }
+        if (doc < 0 || doc >= index.numDocs()) {
+            throw new NotFound("No document " + path);
+        }
+        String requestId = index.requestId(doc);
+        JSONObject result = new JSONObject();
+        result.put("doc", doc + 1);
+        result.put("request_id", requestId);
+        result.put("text", index.document(doc));
+        return result;
+    }
+
+    public static void main(String[] args) throws JSONException, IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        String indexDirName = args.length > 1 ? args[1] : "../all_project_data/index";
+        String fileName = args.length > 2 ? args[2] : "../all_project_data/pizza_request_dataset.json";
+        String corpusDirName = args.length > 3 ? args[3] : "../all_project_data/corpus";
+        int threads = Integer.getInteger("ir.threads", Runtime.getRuntime().availableProcessors());
+
+        IndexDirectory indexDirectory = IndexDirectory.open(new File(indexDirName), Tokenizer.forName(System.getProperty("ir.tokenizer", "ptb")),
+                Boolean.parseBoolean(System.getProperty("ir.positions", "true")));
+        ParallelIndexBuilder.update(indexDirectory, fileName, new File(corpusDirName));
+        indexDirectory.startMerger();
+
+        Similarity similarity = Similarity.forName(System.getProperty("ir.similarity", "bim"));
+        new SearchServer(indexDirectory, similarity).start(port, threads);
+        System.out.println("Serving " + indexDirectory.current().numDocs() + " documents on port " + port
+                + " with " + threads + " threads (" + similarity + ")");
+    }
+}
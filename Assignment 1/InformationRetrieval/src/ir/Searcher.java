@@ -0,0 +1,178 @@
+package ir;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Runs queries against one view of the index. Queries using AND, OR or NOT
+ * are boolean queries (BooleanQuery). In other queries, quoted parts are
+ * phrases every result must match when the index has positions, otherwise
+ * their terms are searched like the others. With -Dir.proximity the
+ * default evaluator is ProximityEvaluator.
+ */
+public class Searcher {
+
+    private static final boolean PROXIMITY = Boolean.getBoolean("ir.proximity");
+
+    private final SegmentedIndex index;
+    private final QueryEvaluator evaluator;
+    private final QueryCache cache;
+
+    public Searcher(SegmentedIndex index) {
+        this(index, defaultEvaluator(), null);
+    }
+
+    /**
+     * Looks the results up in the cache first, the cache is usually shared
+     * by the searchers of successive views.
+     */
+    public Searcher(SegmentedIndex index, QueryCache cache) {
+        this(index, defaultEvaluator(), cache);
+    }
+
+    private static QueryEvaluator defaultEvaluator() {
+        return PROXIMITY ? new ProximityEvaluator() : new MaxScoreEvaluator();
+    }
+
+    public Searcher(SegmentedIndex index, QueryEvaluator evaluator) {
+        this(index, evaluator, null);
+    }
+
+    public Searcher(SegmentedIndex index, QueryEvaluator evaluator, QueryCache cache) {
+        this.index = index;
+        this.evaluator = evaluator;
+        this.cache = cache;
+    }
+
+    public SegmentedIndex index() {
+        return index;
+    }
+
+    /**
+     * Returns the k best documents for the query under the binary
+     * independence model.
+     */
+    public TopDocs search(String query, int k) {
+        return search(query, Similarity.BIM, k);
+    }
+
+    /**
+     * Returns the k best documents for the query under the given model, none
+     * for k = 0.
+     */
+    public TopDocs search(String query, Similarity similarity, int k) {
+        if (k == 0) {
+            return new TopKSelector(0).topDocs();
+        }
+        if (BooleanQuery.isBoolean(query)) {
+            // like phrase queries, boolean queries are not cached
+            BooleanQuery parsed = BooleanQuery.parse(query, index.tokenizer());
+            return parsed == null ? new TopKSelector(k).topDocs()
+                    : new BooleanEvaluator().evaluate(index, parsed, similarity, k);
+        }
+        List<PhraseQuery> phrases = phrases(query);
+        if (!phrases.isEmpty()) {
+            // phrase queries are cheap and rare, they are not cached
+            TreeMap<String, Integer> queryMap = Analyzer.analyze(PhraseQuery.strip(query), index.tokenizer());
+            return new PhraseEvaluator().evaluate(index, phrases, queryMap, similarity, k);
+        }
+        // Query Tokenization, Stemming and Metaphone
+        TreeMap<String, Integer> queryMap = Analyzer.analyze(query, index.tokenizer());
+        return search(queryMap, similarity, k);
+    }
+
+    // The phrases of the query, none if the index cannot match them
+    private List<PhraseQuery> phrases(String query) {
+        if (query.indexOf('"') < 0 || !index.hasPositions()) {
+            return Collections.emptyList();
+        }
+        return PhraseQuery.parse(query, index.tokenizer());
+    }
+
+    /**
+     * Returns the k best documents for a query still being typed. Unless the
+     * query ends with a space its last token is taken as the start of a word:
+     * it is replaced by the terms of the given number of most frequent words
+     * of the documents that start with it, and left out while it is a single
+     * character.
+     * Boolean queries and queries with phrases are searched as they are.
+     */
+    public TopDocs searchPrefix(String query, Similarity similarity, int k, int completions) {
+        if (BooleanQuery.isBoolean(query) || !phrases(query).isEmpty()) {
+            return search(query, similarity, k);
+        }
+        return search(prefixQuery(query, completions), similarity, k);
+    }
+
+    /**
+     * The terms search looks for.
+     */
+    public Set<String> terms(String query) {
+        if (BooleanQuery.isBoolean(query)) {
+            BooleanQuery parsed = BooleanQuery.parse(query, index.tokenizer());
+            return parsed == null ? Collections.<String>emptySet() : parsed.terms();
+        }
+        List<PhraseQuery> phrases = phrases(query);
+        if (phrases.isEmpty()) {
+            return Analyzer.analyze(query, index.tokenizer()).keySet();
+        }
+        Set<String> terms = new TreeSet<String>(Analyzer.analyze(PhraseQuery.strip(query), index.tokenizer()).keySet());
+        for (PhraseQuery phrase : phrases) {
+            terms.addAll(phrase.terms());
+        }
+        return terms;
+    }
+
+    /**
+     * The terms searchPrefix looks for, the last word completed.
+     */
+    public Set<String> prefixTerms(String query, int completions) {
+        if (BooleanQuery.isBoolean(query) || !phrases(query).isEmpty()) {
+            return terms(query);
+        }
+        return prefixQuery(query, completions).keySet();
+    }
+
+    private TreeMap<String, Integer> prefixQuery(String query, int completions) {
+        TreeMap<String, Integer> queryMap = new TreeMap<String, Integer>();
+        Iterator<String> tokens = index.tokenizer().tokens(query);
+        String last = null;
+        while (tokens.hasNext()) {
+            if (last != null) {
+                add(queryMap, Analyzer.term(last));
+            }
+            last = tokens.next();
+        }
+        if (last != null) {
+            if (Character.isWhitespace(query.charAt(query.length() - 1))) {
+                add(queryMap, Analyzer.term(last));
+            } else if (last.length() > 1) {
+                for (String term : index.completions(last, completions)) {
+                    add(queryMap, term);
+                }
+            }
+        }
+        return queryMap;
+    }
+
+    private static void add(TreeMap<String, Integer> queryMap, String term) {
+        Integer freq = queryMap.get(term);
+        queryMap.put(term, (freq == null) ? 1 : freq + 1);
+    }
+
+    private TopDocs search(TreeMap<String, Integer> queryMap, Similarity similarity, int k) {
+        if (cache == null) {
+            return evaluator.evaluate(index, queryMap, similarity, k);
+        }
+        TopDocs topDocs = cache.get(index, queryMap, similarity, k);
+        if (topDocs == null) {
+            topDocs = evaluator.evaluate(index, queryMap, similarity, k);
+            cache.put(index, queryMap, similarity, k, topDocs);
+        }
+        return topDocs;
+    }
+}
@@ -0,0 +1,200 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A point-in-time view of the index made of immutable segments. Document
+ * frequencies are summed over the segments and doc ids are numbered across
+ * them in segment order. A new view (with a higher generation) is published
+ * whenever a segment is flushed or segments are merged; queries keep the
+ * view they started with.
+ */
+public class SegmentedIndex {
+
+    private final long generation;
+    private final Tokenizer tokenizer;
+    private final String[] names;
+    private final IndexReader[] segments;
+    private final int[] docBases;
+    private final int numDocs;
+    private final long sumDocLength;
+
+    SegmentedIndex(long generation, Tokenizer tokenizer, List<String> names, List<IndexReader> segments) {
+        this.generation = generation;
+        this.tokenizer = tokenizer;
+        this.names = names.toArray(new String[names.size()]);
+        this.segments = segments.toArray(new IndexReader[segments.size()]);
+        docBases = new int[this.segments.length];
+        int base = 0;
+        long sum = 0;
+        for (int i = 0; i < this.segments.length; i++) {
+            docBases[i] = base;
+            base += this.segments[i].numDocs();
+            sum += this.segments[i].sumDocLength();
+        }
+        numDocs = base;
+        sumDocLength = sum;
+    }
+
+    /**
+     * Changes every time the index is updated.
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * The tokenizer the documents were split with, queries must use it too.
+     */
+    public Tokenizer tokenizer() {
+        return tokenizer;
+    }
+
+    public int numDocs() {
+        return numDocs;
+    }
+
+    /**
+     * Average number of tokens per document.
+     */
+    public double avgDocLength() {
+        return numDocs == 0 ? 0 : (double) sumDocLength / numDocs;
+    }
+
+    /**
+     * Whether every segment has positions.
+     */
+    public boolean hasPositions() {
+        for (IndexReader segment : segments) {
+            if (!segment.hasPositions()) {
+                return false;
+            }
+        }
+        return segments.length > 0;
+    }
+
+    public int numSegments() {
+        return segments.length;
+    }
+
+    String segmentName(int i) {
+        return names[i];
+    }
+
+    IndexReader segment(int i) {
+        return segments[i];
+    }
+
+    /**
+     * Number of documents containing the term, 0 if it is not in the index.
+     */
+    public int docFreq(String term) {
+        int documentFrequency = 0;
+        for (IndexReader segment : segments) {
+            documentFrequency += segment.docFreq(term);
+        }
+        return documentFrequency;
+    }
+
+    /**
+     * Highest frequency of the term in any document, 0 if it is not in the
+     * index.
+     */
+    public int maxFreq(String term) {
+        int maxFreq = 0;
+        for (IndexReader segment : segments) {
+            maxFreq = Math.max(maxFreq, segment.maxFreq(term));
+        }
+        return maxFreq;
+    }
+
+    /**
+     * The at most k terms of the words starting with prefix that occur in
+     * the most documents, most frequent first. The prefix is completed over
+     * the words of the documents and not over their terms, as a prefix of a
+     * word does not always encode to a prefix of its term ("nig" and
+     * "night"). Candidates are the terms of the best k words of each
+     * segment, ranked by their document frequency over all segments.
+     */
+    public List<String> completions(String prefix, int k) {
+        final Map<String, Integer> docFreqs = new HashMap<String, Integer>();
+        for (IndexReader segment : segments) {
+            for (String word : segment.wordCompletions(prefix.toLowerCase(), k, tokenizer)) {
+                String term = Analyzer.term(word);
+                if (!docFreqs.containsKey(term)) {
+                    docFreqs.put(term, docFreq(term));
+                }
+            }
+        }
+        List<String> completions = new ArrayList<String>(docFreqs.keySet());
+        Collections.sort(completions, (a, b) -> {
+            int c = Integer.compare(docFreqs.get(b), docFreqs.get(a));
+            return c != 0 ? c : a.compareTo(b);
+        });
+        return completions.size() > k ? completions.subList(0, k) : completions;
+    }
+
+    /**
+     * Postings of the term over all segments, or null if it is not in the
+     * index.
+     */
+    public PostingsIterator postings(String term) {
+        if (segments.length == 1) {
+            return segments[0].postings(term);
+        }
+        PostingsIterator[] subs = new PostingsIterator[segments.length];
+        boolean found = false;
+        for (int i = 0; i < segments.length; i++) {
+            subs[i] = segments[i].postings(term);
+            found |= subs[i] != null;
+        }
+        return found ? new MultiPostingsIterator(subs, docBases) : null;
+    }
+
+    // Segment holding the document
+    private int segmentOf(int doc) {
+        int i = Arrays.binarySearch(docBases, doc);
+        if (i < 0) {
+            i = -i - 2;
+        }
+        // skip empty segments sharing the same doc base
+        while (i + 1 < segments.length && docBases[i + 1] == doc) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Id of the request (t3_...) the document was built from.
+     */
+    public String requestId(int doc) {
+        int i = segmentOf(doc);
+        return segments[i].requestId(doc - docBases[i]);
+    }
+
+    /**
+     * Text of the document.
+     */
+    public String document(int doc) {
+        int i = segmentOf(doc);
+        return segments[i].document(doc - docBases[i]);
+    }
+
+    /**
+     * Request ids of all documents, in doc id order.
+     */
+    public List<String> requestIds() {
+        List<String> requestIds = new ArrayList<String>(numDocs);
+        for (IndexReader segment : segments) {
+            for (int doc = 0; doc < segment.numDocs(); doc++) {
+                requestIds.add(segment.requestId(doc));
+            }
+        }
+        return requestIds;
+    }
+}
@@ -0,0 +1,62 @@
+package ir;
+
+/**
+ * A ranking model. A document's score combines, starting from neutral(), the
+ * score of every query term it contains; documents containing no query term
+ * keep neutral(). combine must be increasing in the term score so that upper
+ * bounds of term scores bound document scores.
+ */
+public abstract class Similarity {
+
+    public static final Similarity BIM = new BIMSimilarity();
+    public static final Similarity BM25 = new BM25Similarity();
+
+    /**
+     * Returns the model called name ("bim" or "bm25").
+     */
+    public static Similarity forName(String name) {
+        if (BM25.name().equalsIgnoreCase(name)) {
+            return BM25;
+        } else if (BIM.name().equalsIgnoreCase(name)) {
+            return BIM;
+        }
+        throw new IllegalArgumentException("Unknown ranking model: " + name);
+    }
+
+    public abstract String name();
+
+    /**
+     * Score of a document containing none of the query terms.
+     */
+    public abstract double neutral();
+
+    public abstract double combine(double score, double termScore);
+
+    /**
+     * Weight of a term given the number of documents containing it, computed
+     * once per query term.
+     */
+    public abstract double idf(int totalDocuments, int documentFrequency);
+
+    /**
+     * Score of a term in a document.
+     */
+    public abstract double termScore(double idf, int freq, int docLength, double avgDocLength);
+
+    /**
+     * Score of a phrase in a document, given the idf of each of its terms
+     * and how often it matches there, fractional for inexact matches.
+     */
+    public abstract double phraseScore(double[] idfs, double freq, int docLength, double avgDocLength);
+
+    /**
+     * Upper bound of termScore over all documents, and at least the identity
+     * of combine, for a term whose highest frequency is maxFreq.
+     */
+    public abstract double maxTermScore(double idf, int maxFreq, double avgDocLength);
+
+    @Override
+    public String toString() {
+        return name();
+    }
+}
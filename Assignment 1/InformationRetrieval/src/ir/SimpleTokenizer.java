@@ -0,0 +1,111 @@
+package ir;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Hand written scanner for request text. A token is a run of letters and
+ * digits; an apostrophe between letters is dropped so "don't" and "dont"
+ * give the same token, and a '.' or ',' between digits is kept so numbers
+ * like 3.50 stay whole. Everything else, punctuation included, separates
+ * tokens. Only the token strings are allocated.
+ */
+public class SimpleTokenizer implements Tokenizer {
+
+    @Override
+    public String name() {
+        return "simple";
+    }
+
+    @Override
+    public Tokens tokens(CharSequence text) {
+        return new Scanner(text);
+    }
+
+    @Override
+    public String toString() {
+        return name();
+    }
+
+    private static boolean isApostrophe(char c) {
+        return c == '\'' || c == '\u2019';
+    }
+
+    private static class Scanner implements Tokens {
+
+        private final CharSequence text;
+        private final StringBuilder sb = new StringBuilder();
+        private int position = 0;
+        private String next;
+        // offsets of the scanned token, and of the one returned by next()
+        private int nextStart;
+        private int nextEnd;
+        private int start;
+        private int end;
+
+        Scanner(CharSequence text) {
+            this.text = text;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = scan();
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String token = next;
+            next = null;
+            start = nextStart;
+            end = nextEnd;
+            return token;
+        }
+
+        @Override
+        public int start() {
+            return start;
+        }
+
+        @Override
+        public int end() {
+            return end;
+        }
+
+        // Reads the token starting at or after position, null at the end
+        private String scan() {
+            int length = text.length();
+            while (position < length && !Character.isLetterOrDigit(text.charAt(position))) {
+                position++;
+            }
+            if (position == length) {
+                return null;
+            }
+            sb.setLength(0);
+            nextStart = position;
+            while (position < length) {
+                char c = text.charAt(position);
+                if (Character.isLetterOrDigit(c)) {
+                    sb.append(c);
+                } else if (position + 1 < length && isApostrophe(c)
+                        && Character.isLetter(text.charAt(position - 1))
+                        && Character.isLetter(text.charAt(position + 1))) {
+                    // don't -> dont
+                } else if (position + 1 < length && (c == '.' || c == ',')
+                        && Character.isDigit(text.charAt(position - 1))
+                        && Character.isDigit(text.charAt(position + 1))) {
+                    sb.append(c);
+                } else {
+                    break;
+                }
+                position++;
+            }
+            nextEnd = position;
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package ir;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Query-biased snippets of search results. The occurrences of the query terms
+ * in a document come from the positional postings, with their offsets in the
+ * stored text, so the text is never tokenized again: the snippet is the
+ * window of the text of about FRAGMENT_CHARS characters holding the most
+ * distinct query terms (then the most occurrences), widened to whole words,
+ * with the occurrences in bold. The postings of every term are walked once
+ * for all documents of a page.
+ */
+public class Snippets {
+
+    static final int FRAGMENT_CHARS = 160;
+
+    private Snippets() {
+    }
+
+    /**
+     * HTML snippets of the documents for a query searched as the given
+     * terms, in the order of docs. The snippets are null if the index has no
+     * positions.
+     */
+    public static String[] html(SegmentedIndex index, Collection<String> terms, int[] docs) {
+        String[] snippets = new String[docs.length];
+        if (!index.hasPositions()) {
+            return snippets;
+        }
+        // the documents in doc id order, so postings only move forward
+        int[] order = new int[docs.length];
+        long[] keys = new long[docs.length];
+        for (int i = 0; i < docs.length; i++) {
+            keys[i] = (long) docs[i] << 32 | i;
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < docs.length; i++) {
+            order[i] = (int) keys[i];
+        }
+
+        // start and end offsets and term of every occurrence, per document
+        int[][] occurrences = new int[docs.length][];
+        int[] sizes = new int[docs.length];
+        int term = 0;
+        for (String t : terms) {
+            PostingsIterator postings = index.postings(t);
+            if (postings != null) {
+                for (int i : order) {
+                    int doc = docs[i];
+                    if (postings.docId() < doc && postings.advance(doc) == PostingsIterator.NO_MORE_DOCS) {
+                        break;
+                    }
+                    if (postings.docId() != doc) {
+                        continue;
+                    }
+                    int freq = postings.freq();
+                    if (occurrences[i] == null) {
+                        occurrences[i] = new int[3 * Math.max(freq, 4)];
+                    } else if (sizes[i] + 3 * freq > occurrences[i].length) {
+                        occurrences[i] = Arrays.copyOf(occurrences[i], Math.max(sizes[i] + 3 * freq, 2 * occurrences[i].length));
+                    }
+                    for (int j = 0; j < freq; j++) {
+                        postings.nextPosition();
+                        occurrences[i][sizes[i]++] = postings.startOffset();
+                        occurrences[i][sizes[i]++] = postings.endOffset();
+                        occurrences[i][sizes[i]++] = term;
+                    }
+                }
+            }
+            term++;
+        }
+
+        for (int i = 0; i < docs.length; i++) {
+            snippets[i] = snippet(index.document(docs[i]), occurrences[i], sizes[i] / 3, terms.size());
+        }
+        return snippets;
+    }
+
+    // The snippet of one document given its count occurrences, unordered
+    private static String snippet(String text, int[] occurrences, int count, int numTerms) {
+        // occurrences by start offset
+        long[] byStart = new long[count];
+        for (int o = 0; o < count; o++) {
+            byStart[o] = (long) occurrences[3 * o] << 32 | o;
+        }
+        Arrays.sort(byStart);
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        int[] terms = new int[count];
+        for (int o = 0; o < count; o++) {
+            int from = 3 * (int) byStart[o];
+            starts[o] = occurrences[from];
+            ends[o] = occurrences[from + 1];
+            terms[o] = occurrences[from + 2];
+        }
+
+        // best window of occurrences [first, last] fitting in FRAGMENT_CHARS
+        int first = 0;
+        int last = -1;
+        long bestScore = -1;
+        int[] termCounts = new int[numTerms];
+        int distinct = 0;
+        for (int lo = 0, hi = 0; lo < count; lo++) {
+            while (hi < count && ends[hi] - starts[lo] <= FRAGMENT_CHARS) {
+                if (termCounts[terms[hi]]++ == 0) {
+                    distinct++;
+                }
+                hi++;
+            }
+            long score = (long) distinct << 32 | (hi - lo);
+            if (hi > lo && score > bestScore) {
+                bestScore = score;
+                first = lo;
+                last = hi - 1;
+            }
+            if (hi > lo && --termCounts[terms[lo]] == 0) {
+                distinct--;
+            }
+            hi = Math.max(hi, lo + 1);
+        }
+
+        // the fragment: the window centered in FRAGMENT_CHARS, on word bounds
+        int from = 0;
+        int to = Math.min(text.length(), FRAGMENT_CHARS);
+        if (last >= first) {
+            int spanStart = starts[first];
+            int spanEnd = ends[last];
+            from = Math.max(0, spanStart - (FRAGMENT_CHARS - (spanEnd - spanStart)) / 2);
+            to = Math.min(text.length(), Math.max(spanEnd, from + FRAGMENT_CHARS));
+            while (from > 0 && from < spanStart && !Character.isWhitespace(text.charAt(from - 1))) {
+                from++;
+            }
+            while (to < text.length() && to > spanEnd && !Character.isWhitespace(text.charAt(to))) {
+                to--;
+            }
+        } else {
+            while (to < text.length() && to > 0 && !Character.isWhitespace(text.charAt(to))) {
+                to--;
+            }
+        }
+
+        StringBuilder html = new StringBuilder();
+        if (from > 0) {
+            html.append("&hellip; ");
+        }
+        int at = from;
+        for (int o = 0; o < count; o++) {
+            if (starts[o] < at || ends[o] > to) {
+                continue;
+            }
+            escape(text, at, starts[o], html);
+            html.append("<b>");
+            escape(text, starts[o], ends[o], html);
+            html.append("</b>");
+            at = ends[o];
+        }
+        escape(text, at, to, html);
+        if (to < text.length()) {
+            html.append(" &hellip;");
+        }
+        return html.toString();
+    }
+
+    // Appends text[from, to) as HTML, runs of white space as a single space
+    private static void escape(String text, int from, int to, StringBuilder html) {
+        for (int c = from; c < to; c++) {
+            char ch = text.charAt(c);
+            if (Character.isWhitespace(ch)) {
+                if (html.length() == 0 || html.charAt(html.length() - 1) != ' ') {
+                    html.append(' ');
+                }
+            } else if (ch == '<') {
+                html.append("&lt;");
+            } else if (ch == '>') {
+                html.append("&gt;");
+            } else if (ch == '&') {
+                html.append("&amp;");
+            } else {
+                html.append(ch);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ir;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.process.CoreLabelTokenFactory;
+import edu.stanford.nlp.process.PTBTokenizer;
+import java.io.StringReader;
+
+/**
+ * The Penn Treebank tokenizer of Stanford CoreNLP. It splits clitics and
+ * punctuation the way the treebank does and builds a CoreLabel per token,
+ * which also carries the offsets of the token.
+ */
+public class StanfordTokenizer implements Tokenizer {
+
+    @Override
+    public String name() {
+        return "ptb";
+    }
+
+    @Override
+    public Tokens tokens(CharSequence text) {
+        final PTBTokenizer<CoreLabel> ptbt = new PTBTokenizer<>(new StringReader(text.toString()), new CoreLabelTokenFactory(), "");
+        return new Tokens() {
+            private CoreLabel token;
+
+            @Override
+            public boolean hasNext() {
+                return ptbt.hasNext();
+            }
+
+            @Override
+            public String next() {
+                token = ptbt.next();
+                return token.word();
+            }
+
+            @Override
+            public int start() {
+                return token.beginPosition();
+            }
+
+            @Override
+            public int end() {
+                return token.endPosition();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return name();
+    }
+}
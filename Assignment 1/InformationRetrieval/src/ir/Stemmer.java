@@ -85,6 +85,30 @@ class Stemmer
       for (int c = 0; c < wLen; c++) b[i++] = w[c];
    }
 
+   /**
+    * Discards the characters added so far, so the Stemmer can be reused for
+    * the next word.
+    */
+
+   public void reset()
+   {  i = 0;
+      i_end = 0;
+   }
+
+   /**
+    * Stems the len characters of w starting at off, replacing the word
+    * added so far. The buffer only grows for a longer word than any seen
+    * before, so a reused Stemmer does not allocate per word. The result is
+    * retrieved as after stem().
+    */
+
+   public void stem(char[] w, int off, int len)
+   {  if (len >= b.length) b = new char[len+INC];
+      System.arraycopy(w, off, b, 0, len);
+      i = len;
+      stem();
+   }
+
    /**
     * After a word has been stemmed, it can be retrieved by toString(),
     * or a reference to the internal buffer can be retrieved by getResultBuffer
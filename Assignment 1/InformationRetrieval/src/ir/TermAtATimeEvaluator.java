@@ -0,0 +1,63 @@
+package ir;
+
+import java.util.TreeMap;
+
+/**
+ * Evaluates a query one term at a time: the postings of each term are merged
+ * into a list of accumulators, sorted by doc id, that only holds documents
+ * matching at least one query term.
+ */
+public class TermAtATimeEvaluator extends QueryEvaluator {
+
+    @Override
+    public TopDocs evaluate(SegmentedIndex index, TreeMap<String, Integer> queryMap, Similarity similarity, int k) {
+        int totalDocuments = index.numDocs();
+        double avgDocLength = index.avgDocLength();
+        double neutral = similarity.neutral();
+        int[] docs = new int[0];
+        double[] scores = new double[0];
+        int size = 0;
+        for (String key : queryMap.keySet()) {
+            PostingsIterator postings = index.postings(key);
+            if (postings == null) {
+                continue;
+            }
+            double idf = similarity.idf(totalDocuments, postings.cost());
+            int[] mergedDocs = new int[size + postings.cost()];
+            double[] mergedScores = new double[mergedDocs.length];
+            int merged = 0;
+            int i = 0;
+            int doc = postings.nextDoc();
+            while (i < size || doc != PostingsIterator.NO_MORE_DOCS) {
+                if (doc == PostingsIterator.NO_MORE_DOCS || (i < size && docs[i] < doc)) {
+                    mergedDocs[merged] = docs[i];
+                    mergedScores[merged++] = scores[i++];
+                    continue;
+                }
+                double termScore = similarity.termScore(idf, postings.freq(), postings.docLength(), avgDocLength);
+                if (i < size && docs[i] == doc) {
+                    mergedDocs[merged] = doc;
+                    mergedScores[merged++] = similarity.combine(scores[i++], termScore);
+                } else {
+                    mergedDocs[merged] = doc;
+                    mergedScores[merged++] = similarity.combine(neutral, termScore);
+                }
+                doc = postings.nextDoc();
+            }
+            docs = mergedDocs;
+            scores = mergedScores;
+            size = merged;
+        }
+
+        TopKSelector selector = new TopKSelector(k);
+        int remaining = k;
+        int next = 0;
+        for (int i = 0; i < size; i++) {
+            remaining = collectUnmatched(selector, next, docs[i], remaining, neutral);
+            selector.collect(docs[i], scores[i]);
+            next = docs[i] + 1;
+        }
+        collectUnmatched(selector, next, totalDocuments, remaining, neutral);
+        return selector.topDocs();
+    }
+}
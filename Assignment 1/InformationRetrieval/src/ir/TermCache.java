@@ -0,0 +1,115 @@
+package ir;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache from the surface form of a token to its normalized term
+ * (stemmed and metaphone encoded). Tokens follow Zipf's law, so a few
+ * thousand forms cover most of the text and are normalized only once.
+ * The cache is split into stripes, each a small LRU map with its own lock,
+ * so analyzers on many threads rarely wait for each other; when a stripe
+ * is full its least recently used form is evicted.
+ */
+public class TermCache {
+
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private static class Stripe extends LinkedHashMap<String, String> {
+
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    /**
+     * Creates a cache holding at most about maxSize forms.
+     */
+    public TermCache(int maxSize) {
+        int capacity = Math.max(1, maxSize / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(capacity);
+        }
+    }
+
+    private Stripe stripe(String form) {
+        int h = form.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * The term of the form, or null if it is not cached.
+     */
+    public String get(String form) {
+        Stripe stripe = stripe(form);
+        String term;
+        synchronized (stripe) {
+            term = stripe.get(form);
+        }
+        if (term == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return term;
+    }
+
+    public void put(String form, String term) {
+        Stripe stripe = stripe(form);
+        synchronized (stripe) {
+            stripe.put(form, term);
+        }
+    }
+
+    /**
+     * Number of forms cached.
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    @Override
+    public String toString() {
+        long hits = hits();
+        long lookups = hits + misses();
+        return "Term cache: " + size() + " forms, " + hits + " hits, " + misses() + " misses ("
+                + String.format("%.1f", lookups == 0 ? 0.0 : 100.0 * hits / lookups) + "% hit rate)";
+    }
+}
@@ -0,0 +1,103 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Finds the most frequent words of a segment starting with a prefix. The
+ * words are sorted, so those with a prefix form a range found by binary
+ * search; a segment tree keeps the position of the highest document frequency
+ * of every node, so the k best words of a range are taken out one at a time,
+ * best first, without looking at the rest of the range.
+ */
+final class TermCompleter {
+
+    private final String[] terms;
+    private final int[] docFreqs;
+    private final int leaves;
+    // tree[1] is the root, the children of i are 2i and 2i+1, leaf t is at
+    // leaves + t; each node holds the term with the highest df below it
+    private final int[] tree;
+
+    TermCompleter(String[] terms, int[] docFreqs) {
+        this.terms = terms;
+        this.docFreqs = docFreqs;
+        int leaves = 1;
+        while (leaves < terms.length) {
+            leaves <<= 1;
+        }
+        this.leaves = leaves;
+        tree = new int[2 * leaves];
+        Arrays.fill(tree, -1);
+        for (int t = 0; t < terms.length; t++) {
+            tree[leaves + t] = t;
+        }
+        for (int i = leaves - 1; i > 0; i--) {
+            tree[i] = best(tree[2 * i], tree[2 * i + 1]);
+        }
+    }
+
+    // The better of two terms: higher df, then lower position
+    private int best(int a, int b) {
+        if (a < 0) {
+            return b;
+        } else if (b < 0) {
+            return a;
+        }
+        if (docFreqs[a] != docFreqs[b]) {
+            return docFreqs[b] > docFreqs[a] ? b : a;
+        }
+        return Math.min(a, b);
+    }
+
+    // Position of the best term in [from, to), -1 if the range is empty
+    private int bestIn(int from, int to) {
+        int result = -1;
+        for (int lo = from + leaves, hi = to + leaves; lo < hi; lo >>= 1, hi >>= 1) {
+            if ((lo & 1) == 1) {
+                result = best(result, tree[lo++]);
+            }
+            if ((hi & 1) == 1) {
+                result = best(result, tree[--hi]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Positions of the at most k terms starting with prefix that occur in the
+     * most documents, most frequent first.
+     */
+    List<Integer> complete(String prefix, int k) {
+        int from = insertionPoint(prefix);
+        int to = insertionPoint(prefix + Character.MAX_VALUE);
+        List<Integer> result = new ArrayList<Integer>(k);
+        // ranges ordered by their best term
+        PriorityQueue<int[]> ranges = new PriorityQueue<int[]>(11, (a, b) -> {
+            int c = Integer.compare(docFreqs[b[2]], docFreqs[a[2]]);
+            return c != 0 ? c : Integer.compare(a[2], b[2]);
+        });
+        if (from < to) {
+            ranges.add(new int[]{from, to, bestIn(from, to)});
+        }
+        while (result.size() < k && !ranges.isEmpty()) {
+            int[] range = ranges.poll();
+            int t = range[2];
+            result.add(t);
+            if (range[0] < t) {
+                ranges.add(new int[]{range[0], t, bestIn(range[0], t)});
+            }
+            if (t + 1 < range[1]) {
+                ranges.add(new int[]{t + 1, range[1], bestIn(t + 1, range[1])});
+            }
+        }
+        return result;
+    }
+
+    private int insertionPoint(String term) {
+        int t = Arrays.binarySearch(terms, term);
+        return t < 0 ? -t - 1 : t;
+    }
+}
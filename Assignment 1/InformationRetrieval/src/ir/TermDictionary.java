@@ -0,0 +1,39 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns int ids to terms while the index is built, in the order terms are
+ * first seen. Safe to share between the threads of a parallel build so that
+ * all partial writers agree on the ids.
+ */
+public class TermDictionary {
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+    private final ArrayList<String> terms = new ArrayList<String>();
+
+    /**
+     * Returns the id of the term, giving it the next free id if it is new.
+     */
+    public int id(String term) {
+        Integer id = ids.get(term);
+        if (id == null) {
+            id = ids.computeIfAbsent(term, this::add);
+        }
+        return id;
+    }
+
+    private synchronized Integer add(String term) {
+        terms.add(term);
+        return terms.size() - 1;
+    }
+
+    public synchronized String term(int id) {
+        return terms.get(id);
+    }
+
+    public synchronized int size() {
+        return terms.size();
+    }
+}
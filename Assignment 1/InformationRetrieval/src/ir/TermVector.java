@@ -0,0 +1,115 @@
+package ir;
+
+import java.util.Arrays;
+
+/**
+ * Terms of one document as parallel arrays of term ids, in increasing order,
+ * and their frequencies, along with the number of tokens of the document.
+ * Vectors built with positions also hold every occurrence of every term: its
+ * token position and character offsets, grouped by term in term id order and
+ * in position order within a term.
+ */
+public class TermVector {
+
+    final int[] termIds;
+    final int[] freqs;
+    final int size;
+    final int length;
+    // null without positions
+    final int[] positions;
+    final int[] startOffsets;
+    final int[] endOffsets;
+
+    private TermVector(int[] termIds, int[] freqs, int size, int length,
+            int[] positions, int[] startOffsets, int[] endOffsets) {
+        this.termIds = termIds;
+        this.freqs = freqs;
+        this.size = size;
+        this.length = length;
+        this.positions = positions;
+        this.startOffsets = startOffsets;
+        this.endOffsets = endOffsets;
+    }
+
+    /**
+     * Builds the vector from the term ids of the tokens of a document, in
+     * token order. The array is sorted in place.
+     */
+    static TermVector of(int[] tokens, int length) {
+        Arrays.sort(tokens, 0, length);
+        int[] termIds = new int[length];
+        int[] freqs = new int[length];
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            if (size > 0 && termIds[size - 1] == tokens[i]) {
+                freqs[size - 1]++;
+            } else {
+                termIds[size] = tokens[i];
+                freqs[size] = 1;
+                size++;
+            }
+        }
+        return new TermVector(termIds, freqs, size, length, null, null, null);
+    }
+
+    /**
+     * Builds the vector with positions from the term ids of the tokens of a
+     * document, in token order, and the offsets of the tokens in its text.
+     */
+    static TermVector of(int[] tokens, int[] starts, int[] ends, int length) {
+        // term id in the high half and position in the low half sort the
+        // occurrences by term, then by position
+        long[] keys = new long[length];
+        for (int i = 0; i < length; i++) {
+            keys[i] = (long) tokens[i] << 32 | i;
+        }
+        Arrays.sort(keys);
+        int[] termIds = new int[length];
+        int[] freqs = new int[length];
+        int[] positions = new int[length];
+        int[] startOffsets = new int[length];
+        int[] endOffsets = new int[length];
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            int termId = (int) (keys[i] >>> 32);
+            int position = (int) keys[i];
+            if (size > 0 && termIds[size - 1] == termId) {
+                freqs[size - 1]++;
+            } else {
+                termIds[size] = termId;
+                freqs[size] = 1;
+                size++;
+            }
+            positions[i] = position;
+            startOffsets[i] = starts[position];
+            endOffsets[i] = ends[position];
+        }
+        return new TermVector(termIds, freqs, size, length, positions, startOffsets, endOffsets);
+    }
+
+    /**
+     * Whether the vector holds the positions of the terms.
+     */
+    public boolean hasPositions() {
+        return positions != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Number of tokens of the document.
+     */
+    public int length() {
+        return length;
+    }
+
+    public int termId(int i) {
+        return termIds[i];
+    }
+
+    public int freq(int i) {
+        return freqs[i];
+    }
+}
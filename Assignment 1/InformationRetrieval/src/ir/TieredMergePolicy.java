@@ -0,0 +1,59 @@
+package ir;
+
+/**
+ * Decides which segments to merge. Segments are put in tiers by size, each
+ * tier segmentsPerTier times larger than the one below; once a tier holds
+ * segmentsPerTier adjacent segments they are merged into one segment of the
+ * next tier. Only adjacent segments are merged so doc ids keep their order.
+ */
+public class TieredMergePolicy {
+
+    private final int segmentsPerTier;
+    private final int minSegmentDocs;
+    private final int maxMergedDocs;
+
+    public TieredMergePolicy() {
+        this(10, 1000, 1 << 22);
+    }
+
+    public TieredMergePolicy(int segmentsPerTier, int minSegmentDocs, int maxMergedDocs) {
+        this.segmentsPerTier = segmentsPerTier;
+        this.minSegmentDocs = minSegmentDocs;
+        this.maxMergedDocs = maxMergedDocs;
+    }
+
+    private int tier(int docs) {
+        int tier = 0;
+        long bound = minSegmentDocs;
+        while (docs > bound) {
+            tier++;
+            bound *= segmentsPerTier;
+        }
+        return tier;
+    }
+
+    /**
+     * Returns the range {from, to} of segments to merge given the number of
+     * documents of each segment, or null if nothing needs merging.
+     */
+    public int[] findMerge(int[] segmentDocs) {
+        int run = 0;
+        long runDocs = 0;
+        for (int i = segmentDocs.length - 1; i >= 0; i--) {
+            if (run > 0 && tier(segmentDocs[i]) != tier(segmentDocs[i + 1])) {
+                run = 0;
+                runDocs = 0;
+            }
+            run++;
+            runDocs += segmentDocs[i];
+            if (run == segmentsPerTier) {
+                if (runDocs <= maxMergedDocs) {
+                    return new int[]{i, i + segmentsPerTier};
+                }
+                run = 0;
+                runDocs = 0;
+            }
+        }
+        return null;
+    }
+}
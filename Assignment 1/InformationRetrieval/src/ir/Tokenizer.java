@@ -0,0 +1,53 @@
+package ir;
+
+import java.util.Iterator;
+
+/**
+ * Splits text into tokens before they are normalized into terms. The index
+ * records the tokenizer that built it and queries are split with the same
+ * one, so both sides produce the same terms.
+ */
+public interface Tokenizer {
+
+    Tokenizer PTB = new StanfordTokenizer();
+    Tokenizer SIMPLE = new SimpleTokenizer();
+
+    /**
+     * Returns the tokenizer called name ("ptb" or "simple").
+     */
+    static Tokenizer forName(String name) {
+        if (SIMPLE.name().equalsIgnoreCase(name)) {
+            return SIMPLE;
+        } else if (PTB.name().equalsIgnoreCase(name)) {
+            return PTB;
+        }
+        throw new IllegalArgumentException("Unknown tokenizer: " + name);
+    }
+
+    /**
+     * Name recorded in the index.
+     */
+    String name();
+
+    /**
+     * The tokens of the text, in order.
+     */
+    Tokens tokens(CharSequence text);
+
+    /**
+     * Tokens of a text, along with where each one is in the text.
+     */
+    interface Tokens extends Iterator<String> {
+
+        /**
+         * Offset in the text of the first character of the token last
+         * returned by next().
+         */
+        int start();
+
+        /**
+         * Offset in the text just past the last character of that token.
+         */
+        int end();
+    }
+}
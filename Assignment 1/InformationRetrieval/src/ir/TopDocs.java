@@ -0,0 +1,27 @@
+package ir;
+
+/**
+ * The best documents of a search, best first.
+ */
+public class TopDocs {
+
+    private final int[] docIds;
+    private final double[] scores;
+
+    TopDocs(int[] docIds, double[] scores) {
+        this.docIds = docIds;
+        this.scores = scores;
+    }
+
+    public int size() {
+        return docIds.length;
+    }
+
+    public int docId(int i) {
+        return docIds[i];
+    }
+
+    public double score(int i) {
+        return scores[i];
+    }
+}
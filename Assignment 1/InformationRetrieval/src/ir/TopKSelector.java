@@ -0,0 +1,110 @@
+package ir;
+
+/**
+ * Keeps the k best (doc id, score) pairs seen so far in a bounded min-heap
+ * of primitives, so selecting the top k of N documents costs O(N log k)
+ * without sorting or boxing all of them. Higher scores rank first and equal
+ * scores are ordered by increasing doc id, so results are deterministic.
+ */
+public class TopKSelector {
+
+    private final int[] docIds;
+    private final double[] scores;
+    private int size = 0;
+
+    public TopKSelector(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        docIds = new int[k];
+        scores = new double[k];
+    }
+
+    // true if (docA, scoreA) ranks below (docB, scoreB)
+    private static boolean worse(int docA, double scoreA, int docB, double scoreB) {
+        return scoreA < scoreB || (scoreA == scoreB && docA > docB);
+    }
+
+    /**
+     * Offers a document, it is kept if it ranks among the k best so far.
+     */
+    public void collect(int docId, double score) {
+        if (size < docIds.length) {
+            // sift up
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!worse(docId, score, docIds[parent], scores[parent])) {
+                    break;
+                }
+                docIds[i] = docIds[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            docIds[i] = docId;
+            scores[i] = score;
+        } else if (size > 0 && worse(docIds[0], scores[0], docId, score)) {
+            siftDown(docId, score, size);
+        }
+    }
+
+    // Puts (docId, score) at the root and moves it down the heap of n entries
+    private void siftDown(int docId, double score, int n) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= n) {
+                break;
+            }
+            if (child + 1 < n && worse(docIds[child + 1], scores[child + 1], docIds[child], scores[child])) {
+                child++;
+            }
+            if (!worse(docIds[child], scores[child], docId, score)) {
+                break;
+            }
+            docIds[i] = docIds[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        docIds[i] = docId;
+        scores[i] = score;
+    }
+
+    /**
+     * True once k documents have been collected. A selector for k = 0 is
+     * never full, as it has no score to beat.
+     */
+    public boolean isFull() {
+        return size == docIds.length && size > 0;
+    }
+
+    /**
+     * Number of documents kept so far.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Score a document has to beat to enter the top k, only meaningful once
+     * the selector is full.
+     */
+    public double minScore() {
+        return scores[0];
+    }
+
+    /**
+     * Returns the kept documents best first. The selector is emptied.
+     */
+    public TopDocs topDocs() {
+        int[] topIds = new int[size];
+        double[] topScores = new double[size];
+        for (int n = size; n > 0; n--) {
+            topIds[n - 1] = docIds[0];
+            topScores[n - 1] = scores[0];
+            siftDown(docIds[n - 1], scores[n - 1], n - 1);
+        }
+        size = 0;
+        return new TopDocs(topIds, topScores);
+    }
+}
@@ -0,0 +1,52 @@
+package ir;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Variable length encoding of non-negative numbers, 7 bits per byte with the
+ * high bit set on every byte but the last. Small numbers such as doc id gaps
+ * and term frequencies take a single byte.
+ */
+final class VarInt {
+
+    private VarInt() {
+    }
+
+    static void writeVInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static void writeVLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static int readVInt(ByteBuffer in) {
+        byte b = in.get();
+        int value = b & 0x7F;
+        for (int shift = 7; b < 0; shift += 7) {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+        }
+        return value;
+    }
+
+    static long readVLong(ByteBuffer in) {
+        byte b = in.get();
+        long value = b & 0x7FL;
+        for (int shift = 7; b < 0; shift += 7) {
+            b = in.get();
+            value |= (b & 0x7FL) << shift;
+        }
+        return value;
+    }
+}
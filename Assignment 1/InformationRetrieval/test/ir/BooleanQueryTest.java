@@ -0,0 +1,69 @@
+package ir;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+/**
+ * Parsing boolean queries: NOT binds tighter than AND, AND tighter than OR,
+ * parentheses group, and a query may be made of negations only.
+ */
+public class BooleanQueryTest {
+
+    private static String parse(String query) {
+        BooleanQuery parsed = BooleanQuery.parse(query, Tokenizer.SIMPLE);
+        return parsed == null ? null : parsed.toString();
+    }
+
+    // The query with its lower case words replaced by their terms
+    private static String terms(String query) {
+        Matcher m = Pattern.compile("[a-z]+").matcher(query);
+        StringBuffer s = new StringBuffer();
+        while (m.find()) {
+            m.appendReplacement(s, Analyzer.term(m.group()));
+        }
+        return m.appendTail(s).toString();
+    }
+
+    @Test
+    public void andBeforeOr() {
+        assertEquals(terms("(pizza OR (hungry AND student))"), parse("pizza OR hungry AND student"));
+        assertEquals(terms("((pizza AND hungry) OR student)"), parse("pizza AND hungry OR student"));
+        assertEquals(terms("((pizza AND hungry) OR student)"), parse("pizza hungry OR student"));
+    }
+
+    @Test
+    public void notBeforeAnd() {
+        assertEquals(terms("(NOT pizza AND hungry)"), parse("NOT pizza AND hungry"));
+        assertEquals(terms("((NOT pizza AND hungry) OR student)"), parse("NOT pizza hungry OR student"));
+        assertEquals(terms("NOT NOT pizza"), parse("NOT NOT pizza"));
+    }
+
+    @Test
+    public void parenthesesGroup() {
+        assertEquals(terms("((pizza OR hungry) AND student)"), parse("(pizza OR hungry) AND student"));
+        assertEquals(terms("NOT (pizza OR hungry)"), parse("NOT (pizza OR hungry)"));
+        assertEquals(terms("(pizza AND (hungry OR student))"), parse("pizza AND (hungry OR student"));
+    }
+
+    @Test
+    public void onlyNegations() {
+        BooleanQuery parsed = BooleanQuery.parse("NOT pizza", Tokenizer.SIMPLE);
+        assertTrue(parsed instanceof BooleanQuery.Not);
+        assertTrue(parsed.terms().isEmpty());
+        assertEquals(terms("(NOT pizza AND NOT hungry)"), parse("NOT pizza AND NOT hungry"));
+        assertTrue(BooleanQuery.parse("NOT pizza NOT hungry", Tokenizer.SIMPLE).terms().isEmpty());
+    }
+
+    @Test
+    public void nothingToSearch() {
+        assertNull(parse("NOT"));
+        assertNull(parse("AND OR"));
+        assertNull(parse("()"));
+        assertEquals(terms("pizza"), parse("pizza AND NOT"));
+    }
+}
@@ -0,0 +1,115 @@
+package ir;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Documents come back from the store as they were written, raw or
+ * compressed, also when they fill, end on or straddle a block boundary.
+ */
+public class DocumentStoreTest {
+
+    private File dir;
+
+    @Before
+    public void createDir() throws IOException {
+        dir = Files.createTempDirectory("document-store-test").toFile();
+    }
+
+    @After
+    public void deleteDir() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    // Text of the given length, words repeated often enough to compress
+    private static String text(Random random, int length) {
+        String[] words = {"pizza", "hungry", "student", "pay it forward", "Friday", ", "};
+        StringBuilder s = new StringBuilder(length);
+        while (s.length() < length) {
+            s.append(words[random.nextInt(words.length)]).append(random.nextInt(100)).append(' ');
+        }
+        s.setLength(length);
+        return s.toString();
+    }
+
+    @Test
+    public void codecRoundTrip() {
+        Random random = new Random(42);
+        for (int length : new int[]{0, 1, 4, 15, 16, 300, DocumentStore.BLOCK_SIZE - 1, DocumentStore.BLOCK_SIZE,
+            DocumentStore.BLOCK_SIZE + 1, 3 * DocumentStore.BLOCK_SIZE + 17}) {
+            // incompressible bytes, then text
+            for (boolean noise : new boolean[]{true, false}) {
+                byte[] src = new byte[length];
+                if (noise) {
+                    random.nextBytes(src);
+                } else {
+                    src = text(random, length).getBytes(StandardCharsets.UTF_8);
+                }
+                byte[] compressed = new byte[LzCodec.maxCompressedLength(length)];
+                int compressedLength = LzCodec.compress(src, 0, length, compressed);
+                byte[] decompressed = new byte[length];
+                LzCodec.decompress(compressed, 0, compressedLength, decompressed);
+                assertArrayEquals("length " + length, src, decompressed);
+            }
+        }
+    }
+
+    @Test
+    public void documentsAcrossBlockBoundaries() throws IOException {
+        Random random = new Random(7);
+        int block = DocumentStore.BLOCK_SIZE;
+        // sizes in bytes: an empty first document, documents ending just
+        // before, on and just after a boundary, one longer than a block and
+        // small ones around it
+        int[] lengths = {0, block - 1, 1, 100, block - 101, 0, block, 3, 2 * block + 5, 0, 40, 7000, 7000, 7000, 1};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        String[] texts = new String[lengths.length];
+        int[] starts = new int[lengths.length + 1];
+        for (int doc = 0; doc < lengths.length; doc++) {
+            texts[doc] = text(random, lengths[doc]);
+            byte[] utf8 = texts[doc].getBytes(StandardCharsets.UTF_8);
+            bytes.write(utf8, 0, utf8.length);
+            starts[doc + 1] = bytes.size();
+        }
+        for (boolean compress : new boolean[]{true, false}) {
+            File segment = new File(dir, (compress ? "_lz" : "_raw") + ".seg");
+            DocumentStore.write(segment, bytes.toByteArray(), starts, lengths.length, compress);
+            // a single cached block, so reading backwards decompresses again
+            DocumentStore store = DocumentStore.open(segment, 1);
+            assertEquals(compress, store.compressed());
+            assertEquals(lengths.length, store.numDocs());
+            for (int doc = lengths.length - 1; doc >= 0; doc--) {
+                assertEquals("document " + doc, texts[doc], store.document(doc));
+            }
+            for (int doc = 0; doc < lengths.length; doc++) {
+                ByteBuffer stored = store.bytes(doc);
+                byte[] read = new byte[stored.remaining()];
+                stored.get(read);
+                assertArrayEquals("document " + doc, Arrays.copyOfRange(bytes.toByteArray(), starts[doc], starts[doc + 1]), read);
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void noDocumentPastTheEnd() throws IOException {
+        File segment = new File(dir, "_0.seg");
+        byte[] bytes = "pizza".getBytes(StandardCharsets.UTF_8);
+        DocumentStore.write(segment, bytes, new int[]{0, bytes.length}, 1);
+        DocumentStore.open(segment).document(1);
+    }
+}
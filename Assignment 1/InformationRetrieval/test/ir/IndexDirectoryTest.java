@@ -0,0 +1,68 @@
+package ir;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Opening an index directory, and starting over when its segments have a
+ * format this version cannot read.
+ */
+public class IndexDirectoryTest {
+
+    private File dir;
+
+    @Before
+    public void createIndex() throws IOException {
+        dir = Files.createTempDirectory("index-directory-test").toFile();
+        IndexDirectory directory = IndexDirectory.open(dir, Tokenizer.SIMPLE, true);
+        IndexWriter writer = new IndexWriter(new TermDictionary(), true);
+        String text = "Pizza for a hungry student";
+        writer.addDocument("t3_0", text, Analyzer.analyze(text, Tokenizer.SIMPLE, writer.dictionary(), true));
+        directory.flush(writer);
+        directory.close();
+    }
+
+    @After
+    public void deleteIndex() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void reopens() throws IOException {
+        IndexDirectory directory = IndexDirectory.open(dir, Tokenizer.PTB, false);
+        assertEquals(1, directory.current().numDocs());
+        assertEquals(Tokenizer.SIMPLE.name(), directory.tokenizer().name());
+        assertEquals(true, directory.positions());
+        assertEquals("Pizza for a hungry student", directory.current().document(0));
+    }
+
+    @Test
+    public void outdatedFormatStartsOver() throws IOException {
+        for (File file : dir.listFiles()) {
+            if (file.getName().endsWith(".seg")) {
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try {
+                    raf.seek(4);
+                    raf.writeInt(IndexWriter.VERSION - 1);
+                } finally {
+                    raf.close();
+                }
+            }
+        }
+        IndexDirectory directory = IndexDirectory.open(dir, Tokenizer.PTB, false);
+        assertEquals(0, directory.current().numDocs());
+        assertEquals(Tokenizer.PTB.name(), directory.tokenizer().name());
+        assertEquals(false, directory.positions());
+        assertEquals(0, dir.listFiles().length);
+    }
+}
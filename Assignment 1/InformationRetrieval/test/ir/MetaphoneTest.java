@@ -0,0 +1,285 @@
+package ir;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Metaphone must give exactly the codes of the regex based encode it
+ * replaced, which is kept below as the reference, on the String and on the
+ * char[] entry points.
+ */
+public class MetaphoneTest {
+
+    private static final String[] PREFIXES = {"KN", "GN", "PN", "WR", "AE", "PF", "WH", "X"};
+
+    @Test
+    public void emptyAndSingleLetters() {
+        assertParity("");
+        assertParity("1234 !?");
+        for (char c = 'a'; c <= 'z'; c++) {
+            assertParity(String.valueOf(c));
+            assertParity(String.valueOf(Character.toUpperCase(c)));
+            assertParity(c + "-");
+        }
+    }
+
+    @Test
+    public void words() {
+        String[] words = {"pizza", "pay", "forward", "hungry", "broke", "student", "thanks", "knight", "gnome",
+            "pneumonia", "write", "aerial", "pfennig", "wheel", "xylophone", "school", "science", "accident",
+            "success", "edge", "judge", "laugh", "though", "ghost", "dumb", "chemistry", "tiara", "nation",
+            "mission", "match", "thumb", "yellow", "way", "box", "cc", "mcclellan", "Wh", "X", "Kn", "DOG",
+            "don't", "i'm", "t3_1005cj", "Pizza!", "e-mail"};
+        for (String word : words) {
+            assertParity(word);
+            assertParity(word.toUpperCase());
+        }
+    }
+
+    @Test
+    public void prefixes() {
+        for (String prefix : PREFIXES) {
+            assertParity(prefix);
+            for (char c = 'A'; c <= 'Z'; c++) {
+                assertParity(prefix + c);
+                assertParity((prefix + c + "ING").toLowerCase());
+                for (char d = 'A'; d <= 'Z'; d++) {
+                    assertParity(prefix + c + d);
+                }
+            }
+            // letters dropped by the filter can make a prefix
+            assertParity(prefix.charAt(0) + "-" + prefix.substring(1) + "ASH");
+        }
+    }
+
+    @Test
+    public void longWords() {
+        StringBuilder word = new StringBuilder();
+        Random random = new Random(64);
+        for (int length = 1; length <= 300; length++) {
+            word.append((char) ('a' + random.nextInt(26)));
+            if (length >= 60) {
+                assertParity(word.toString());
+                assertParity("kn" + word);
+                assertParity(word.toString().toUpperCase() + "ß");
+            }
+        }
+    }
+
+    @Test
+    public void nonAscii() {
+        String[] words = {"ı", "ſ", "ınk", "ſchool", "straße", "ß", "İstanbul",
+            "ﬁsh", "ﬀ", "café", "naïve", "æsthetic", "Æ", "piña", "Σσ",
+            "хлеб", "ßn", "kın", "ſh", "wħ"};
+        for (String word : words) {
+            assertParity(word);
+            assertParity(word.toUpperCase());
+            assertParity("x" + word);
+        }
+    }
+
+    @Test
+    public void randomStrings() {
+        Random random = new Random(12);
+        char[] alphabet = "abcdeghiknpswxyzABCEGHKNPSTWX -'0ıſßéﬁ".toCharArray();
+        for (int i = 0; i < 200000; i++) {
+            char[] chars = new char[1 + random.nextInt(12)];
+            for (int c = 0; c < chars.length; c++) {
+                chars[c] = random.nextInt(4) == 0 ? (char) ('a' + random.nextInt(26)) : alphabet[random.nextInt(alphabet.length)];
+            }
+            assertParity(new String(chars));
+        }
+    }
+
+    private static void assertParity(String word) {
+        String expected = baselineEncode(word);
+        assertEquals(word, expected, Metaphone.toString(Metaphone.encode(word)));
+        // the word in the middle of a larger array
+        char[] chars = ("@#" + word + "zz").toCharArray();
+        assertEquals(word, expected, Metaphone.toString(Metaphone.encode(chars, 2, word.length())));
+    }
+
+    // The encode of InformationRetrievalUI before Metaphone replaced it
+    private static final char[] DEFAULT_MAPPING = "vBKTvFKHvJKLMNvPKRSTvFW*YS".toCharArray();
+
+    private static char map(char c) {
+        return DEFAULT_MAPPING[c - 'A'];
+    }
+
+    private static final int CODE_LENGTH = 6;
+
+    private static String baselineEncode(final String string) {
+        String word = string.toUpperCase();
+        word = word.replaceAll("[^A-Z]", "");
+        if (word.length() == 0) {
+            return "";
+        } else if (word.length() == 1) {
+            return word;
+        }
+        word = word.replaceFirst("^[KGP]N", "N");
+        word = word.replaceFirst("^WR", "R");
+        word = word.replaceFirst("^AE", "E");
+        word = word.replaceFirst("^PF", "F");
+        word = word.replaceFirst("^WH", "W");
+        word = word.replaceFirst("^X", "S");
+
+        final char[] input = word.toCharArray();
+
+        int code_index = 0;
+        final char[] code = new char[CODE_LENGTH];
+
+        char prev_c = '?';
+
+        for (int i = 0; i < input.length && code_index < CODE_LENGTH; i++) {
+            final char c = input[i];
+            if (c == prev_c) {
+                if (c == 'C') {
+                    if (i < input.length - 1 && "EIY".indexOf(input[i + 1]) >= 0) {
+                        // cc[eiy] -> KS
+                    } else {
+                        continue;
+                    }
+                } else {
+                    continue;
+                }
+            }
+            switch (c) {
+
+                case 'A':
+                case 'E':
+                case 'I':
+                case 'O':
+                case 'U':
+                    if (i == 0) {
+                        code[code_index++] = c;
+                    }
+                    break;
+
+                case 'F':
+                case 'J':
+                case 'L':
+                case 'M':
+                case 'N':
+                case 'R':
+                    code[code_index++] = c;
+                    break;
+                case 'Q':
+                case 'V':
+                case 'Z':
+                    code[code_index++] = map(c);
+                    break;
+
+                case 'B':
+                    if (!(i == input.length - 1 && code_index > 0 && code[code_index - 1] == 'M')) {
+                        code[code_index++] = c;
+                    }
+                    break;
+
+                case 'C':
+                    if (i < input.length - 2 && input[i + 1] == 'I' && input[i + 2] == 'A') {
+                        code[code_index++] = 'X';
+                    } else if (i < input.length - 1 && input[i + 1] == 'H' && i > 0 && input[i - 1] != 'S') {
+                        code[code_index++] = 'X';
+                    } else if (i < input.length - 1 && "EIY".indexOf(input[i + 1]) >= 0) {
+                        code[code_index++] = 'S';
+                    } else {
+                        code[code_index++] = 'K';
+                    }
+                    break;
+
+                case 'D':
+                    if (i < input.length - 2 && input[i + 1] == 'G' && "EIY".indexOf(input[i + 2]) >= 0) {
+                        code[code_index++] = 'J';
+                    } else {
+                        code[code_index++] = 'T';
+                    }
+                    break;
+
+                case 'G':
+                    if (i < input.length - 1 && input[i + 1] == 'N') {
+                        // GN -> N
+                    } else if (i > 0 && input[i - 1] == 'D' && i < input.length - 1
+                            && "EIY".indexOf(input[i + 1]) >= 0) {
+                        // DG[IEY] -> D[IEY]
+                    } else if (i < input.length - 1 && input[i + 1] == 'H'
+                            && (i + 2 == input.length || "AEIOU".indexOf(input[i + 2]) < 0)) {
+                        // GH not before a vowel is silent
+                    } else if (i < input.length - 1 && "EIY".indexOf(input[i + 1]) >= 0) {
+                        code[code_index++] = 'J';
+                    } else {
+                        code[code_index++] = map(c);
+                    }
+                    break;
+
+                case 'H':
+                    if (i > 0 && "AEIOUCGPST".indexOf(input[i - 1]) >= 0) {
+                        // vH -> v
+                    } else if (i < input.length - 1 && "AEIOU".indexOf(input[i + 1]) < 0) {
+                        // Hc -> c
+                    } else {
+                        code[code_index++] = c;
+                    }
+                    break;
+
+                case 'K':
+                    if (i > 0 && input[i - 1] == 'C') {
+                        // CK -> K
+                    } else {
+                        code[code_index++] = map(c);
+                    }
+                    break;
+
+                case 'P':
+                    if (i < input.length - 1 && input[i + 1] == 'H') {
+                        code[code_index++] = 'F';
+                    } else {
+                        code[code_index++] = map(c);
+                    }
+                    break;
+
+                case 'S':
+                    if (i < input.length - 2 && input[i + 1] == 'I' && (input[i + 2] == 'A' || input[i + 2] == 'O')) {
+                        code[code_index++] = 'X';
+                    } else if (i < input.length - 1 && input[i + 1] == 'H') {
+                        code[code_index++] = 'X';
+                    } else {
+                        code[code_index++] = 'S';
+                    }
+                    break;
+
+                case 'T':
+                    if (i < input.length - 2 && input[i + 1] == 'I' && (input[i + 2] == 'A' || input[i + 2] == 'O')) {
+                        code[code_index++] = 'X';
+                    } else if (i < input.length - 1 && input[i + 1] == 'H') {
+                        code[code_index++] = '0';
+                    } else if (i < input.length - 2 && input[i + 1] == 'C' && input[i + 2] == 'H') {
+                        // drop letter
+                    } else {
+                        code[code_index++] = 'T';
+                    }
+                    break;
+
+                case 'W':
+                case 'Y':
+                    if (i < input.length - 1 && "AEIOU".indexOf(input[i + 1]) >= 0) {
+                        code[code_index++] = map(c);
+                    }
+                    break;
+
+                case 'X':
+                    code[code_index++] = 'K';
+                    if (code_index < code.length) {
+                        code[code_index++] = 'S';
+                    }
+                    break;
+
+                default:
+                    throw new AssertionError(c);
+            }
+            prev_c = c;
+        }
+        return new String(code, 0, code_index);
+    }
+}
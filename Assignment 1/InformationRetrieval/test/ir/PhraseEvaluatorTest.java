@@ -0,0 +1,101 @@
+package ir;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Phrase frequencies computed from the positions of the terms, for phrases
+ * and documents given as words.
+ */
+public class PhraseEvaluatorTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void exactMatches() {
+        assertEquals(2, phraseFreq("pay it", "pay it pay it", 0), DELTA);
+        assertEquals(1, phraseFreq("pay it forward", "please pay it forward", 0), DELTA);
+        assertEquals(0, phraseFreq("pay it", "it pay", 0), DELTA);
+    }
+
+    @Test
+    public void sloppyMatchesAreCountedOnce() {
+        assertEquals(2, phraseFreq("pay it", "pay it pay it", 2), DELTA);
+        assertEquals(1.0 / 3, phraseFreq("pay it", "it pay", 2), DELTA);
+        assertEquals(0.5, phraseFreq("pay it", "pay me it", 1), DELTA);
+        assertEquals(0, phraseFreq("pay it", "pay me me it", 1), DELTA);
+    }
+
+    @Test
+    public void repeatedTermsTakeDifferentPositions() {
+        assertEquals(1, phraseFreq("a a", "a a", 1), DELTA);
+        assertEquals(0, phraseFreq("a a", "a", 5), DELTA);
+        assertEquals(0.5, phraseFreq("a a", "a b a", 1), DELTA);
+        assertEquals(1, phraseFreq("a b a", "a b a", 2), DELTA);
+        assertEquals(0, phraseFreq("a b a", "a b", 4), DELTA);
+    }
+
+    @Test
+    public void exactMatchesOfRandomPhrases() {
+        Random random = new Random(24);
+        for (int i = 0; i < 20000; i++) {
+            String[] document = words(random, 1 + random.nextInt(30));
+            String[] phrase = words(random, 2 + random.nextInt(3));
+            int expected = 0;
+            for (int start = 0; start + phrase.length <= document.length; start++) {
+                int j = 0;
+                while (j < phrase.length && document[start + j].equals(phrase[j])) {
+                    j++;
+                }
+                if (j == phrase.length) {
+                    expected++;
+                }
+            }
+            String query = String.join(" ", phrase);
+            String text = String.join(" ", document);
+            assertEquals(query + " in " + text, expected, phraseFreq(query, text, 0), DELTA);
+            // a sloppy phrase matches where the exact one does, and never
+            // more often than there are windows
+            double sloppy = phraseFreq(query, text, 2);
+            assertEquals(query + " in " + text, true, (expected == 0 || sloppy > 0)
+                    && sloppy <= Math.max(0, document.length - phrase.length + 1) + DELTA);
+        }
+    }
+
+    private static String[] words(Random random, int length) {
+        String[] words = new String[length];
+        for (int i = 0; i < length; i++) {
+            words[i] = String.valueOf((char) ('a' + random.nextInt(3)));
+        }
+        return words;
+    }
+
+    private static double phraseFreq(String phrase, String document, int slop) {
+        List<String> terms = new ArrayList<String>();
+        int[] slots = new int[phrase.split(" ").length];
+        int i = 0;
+        for (String term : phrase.split(" ")) {
+            if (!terms.contains(term)) {
+                terms.add(term);
+            }
+            slots[i++] = terms.indexOf(term);
+        }
+        int[][] positions = new int[terms.size()][];
+        int[] counts = new int[terms.size()];
+        List<String> words = Arrays.asList(document.split(" "));
+        for (int t = 0; t < terms.size(); t++) {
+            positions[t] = new int[words.size()];
+            for (int position = 0; position < words.size(); position++) {
+                if (words.get(position).equals(terms.get(t))) {
+                    positions[t][counts[t]++] = position;
+                }
+            }
+        }
+        return PhraseEvaluator.phraseFreq(positions, counts, slots, slop);
+    }
+}
@@ -0,0 +1,36 @@
+package ir;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Parsing of quoted phrases and their slops, alone and in boolean queries.
+ */
+public class PhraseQueryTest {
+
+    @Test
+    public void slops() {
+        assertEquals(0, parse("\"pizza money\"").slop());
+        assertEquals(3, parse("\"pizza money\"~3").slop());
+        assertEquals(PhraseQuery.MAX_SLOP, parse("\"pizza money\"~" + (PhraseQuery.MAX_SLOP + 1)).slop());
+        assertEquals(PhraseQuery.MAX_SLOP, parse("\"pizza money\"~99999999999").slop());
+        assertEquals(7, parse("\"pizza money\"~000000000000000000007").slop());
+    }
+
+    @Test
+    public void slopsInBooleanQueries() {
+        BooleanQuery query = BooleanQuery.parse("\"pizza money\"~99999999999 AND hungry", Tokenizer.SIMPLE);
+        BooleanQuery.Clauses clauses = (BooleanQuery.Clauses) query;
+        PhraseQuery phrase = ((BooleanQuery.Phrase) clauses.clauses().get(0)).phrase();
+        assertEquals(PhraseQuery.MAX_SLOP, phrase.slop());
+        assertEquals(2, clauses.clauses().size());
+    }
+
+    private static PhraseQuery parse(String query) {
+        List<PhraseQuery> phrases = PhraseQuery.parse(query, Tokenizer.SIMPLE);
+        assertEquals(1, phrases.size());
+        return phrases.get(0);
+    }
+}
@@ -0,0 +1,141 @@
+package ir;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * advance() lands on the first document at or after its target: within a
+ * segment, where long posting lists jump with their skip entries, and over
+ * the segments of an index, whose doc ids continue from one to the next.
+ */
+public class PostingsIteratorTest {
+
+    // documents of the two segments; "pizza" is in all of them, "third" in
+    // every third, "later" in every fifth of the second segment only
+    private static final int FIRST = 600;
+    private static final int SECOND = 400;
+
+    private static File dir;
+    private static IndexDirectory directory;
+
+    private static String text(int doc) {
+        StringBuilder s = new StringBuilder("pizza for a hungry student");
+        if (doc % 3 == 0) {
+            s.append(" every third pizza");
+        }
+        if (doc >= FIRST && doc % 5 == 0) {
+            s.append(" later");
+        }
+        return s.toString();
+    }
+
+    @BeforeClass
+    public static void buildIndex() throws IOException {
+        dir = Files.createTempDirectory("postings-iterator-test").toFile();
+        directory = IndexDirectory.open(dir, Tokenizer.SIMPLE, true);
+        for (int[] range : new int[][]{{0, FIRST}, {FIRST, FIRST + SECOND}}) {
+            IndexWriter writer = new IndexWriter(new TermDictionary(), true);
+            for (int doc = range[0]; doc < range[1]; doc++) {
+                writer.addDocument("t3_" + doc, text(doc), Analyzer.analyze(text(doc), Tokenizer.SIMPLE, writer.dictionary(), true));
+            }
+            directory.flush(writer);
+        }
+    }
+
+    @AfterClass
+    public static void deleteIndex() {
+        directory.close();
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    // The first document at or after target whose number is a multiple of
+    // step, starting from first, before end
+    private static int expected(int target, int step, int first, int end) {
+        int doc = Math.max(target, first);
+        doc += (step - (doc - first) % step) % step;
+        return doc < end ? doc : PostingsIterator.NO_MORE_DOCS;
+    }
+
+    @Test
+    public void segmentAdvancesOverSkipEntries() {
+        IndexReader segment = directory.current().segment(0);
+        String third = Analyzer.term("third");
+        // 200 postings of "third" and 600 of "pizza", more than a skip interval
+        assertEquals(FIRST / 3, segment.docFreq(third));
+        for (int target : new int[]{0, 1, 127, 128, 129, 383, 384, 385, 386, 500, 597, 598, 599, 600, 1000}) {
+            PostingsIterator postings = segment.postings(third);
+            assertEquals("target " + target, expected(target, 3, 0, FIRST), postings.advance(target));
+            PostingsIterator all = segment.postings(Analyzer.term("pizza"));
+            assertEquals("target " + target, target < FIRST ? target : PostingsIterator.NO_MORE_DOCS, all.advance(target));
+            if (target < FIRST) {
+                assertEquals(1, postings.freq());
+                assertEquals(target % 3 == 0 ? 2 : 1, all.freq());
+            }
+        }
+    }
+
+    @Test
+    public void segmentAdvancesThenContinues() {
+        IndexReader segment = directory.current().segment(0);
+        PostingsIterator postings = segment.postings(Analyzer.term("third"));
+        int doc = -1;
+        // advances of growing length mixed with nextDoc, the position of
+        // the term in every document reached still the one of its text
+        for (int step = 1; doc != PostingsIterator.NO_MORE_DOCS; step = step * 2 + 1) {
+            int target = doc + step;
+            doc = postings.advance(target);
+            assertEquals("target " + target, expected(target, 3, 0, FIRST), doc);
+            if (doc != PostingsIterator.NO_MORE_DOCS) {
+                assertEquals(6, postings.nextPosition());
+                int next = postings.nextDoc();
+                assertEquals(expected(doc + 1, 3, 0, FIRST), next);
+                doc = next;
+            }
+        }
+        assertEquals(PostingsIterator.NO_MORE_DOCS, postings.advance(FIRST + 1));
+    }
+
+    @Test
+    public void indexAdvancesAcrossSegments() {
+        SegmentedIndex index = directory.current();
+        assertEquals(2, index.numSegments());
+        int end = FIRST + SECOND;
+        // increasing targets: from the first segment into the second, onto
+        // its doc base, past the last document of the first and past the end
+        int[][] walks = {{10, 650, 651, 999, 1000}, {FIRST - 1, FIRST, FIRST + 1}, {598, 599, 600}, {FIRST + 3}, {0, end}};
+        for (int[] walk : walks) {
+            PostingsIterator third = index.postings(Analyzer.term("third"));
+            PostingsIterator pizza = index.postings(Analyzer.term("pizza"));
+            PostingsIterator later = index.postings(Analyzer.term("later"));
+            for (int target : walk) {
+                assertEquals("target " + target, expected(target, 3, 0, end), third.advance(target));
+                assertEquals("target " + target, target < end ? target : PostingsIterator.NO_MORE_DOCS, pizza.advance(target));
+                assertEquals("target " + target, expected(target, 5, FIRST, end), later.advance(target));
+            }
+        }
+    }
+
+    @Test
+    public void indexDocIdsContinueOverSegments() {
+        SegmentedIndex index = directory.current();
+        PostingsIterator later = index.postings(Analyzer.term("later"));
+        // a term in the second segment only
+        assertNull(index.segment(0).postings(Analyzer.term("later")));
+        int count = 0;
+        for (int doc = later.nextDoc(); doc != PostingsIterator.NO_MORE_DOCS; doc = later.nextDoc()) {
+            assertEquals(FIRST + 5 * count++, doc);
+        }
+        assertEquals(SECOND / 5, count);
+        assertNull(index.postings(Analyzer.term("nowhere")));
+    }
+}
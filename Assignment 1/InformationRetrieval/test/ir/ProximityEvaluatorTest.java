@@ -0,0 +1,89 @@
+package ir;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Proximity scoring never ranks a document where the query terms are close
+ * together below one where they are far apart, also for terms most
+ * documents have.
+ */
+public class ProximityEvaluatorTest {
+
+    // "pay" and "it" are in 4 of the 5 documents, BIM odds below 1
+    private static final String[] DOCUMENTS = {
+        "pay the bills and then it will be fine",
+        "please pay it forward",
+        "pay it back",
+        "pay for it",
+        "nothing here"
+    };
+    private static final int DISTANT = 0;
+    private static final int ADJACENT = 1;
+
+    private static File dir;
+    private static IndexDirectory directory;
+
+    @BeforeClass
+    public static void buildIndex() throws IOException {
+        dir = Files.createTempDirectory("proximity-test").toFile();
+        directory = IndexDirectory.open(dir, Tokenizer.SIMPLE, true);
+        IndexWriter writer = new IndexWriter(new TermDictionary(), true);
+        for (int doc = 0; doc < DOCUMENTS.length; doc++) {
+            writer.addDocument("t3_" + doc, DOCUMENTS[doc],
+                    Analyzer.analyze(DOCUMENTS[doc], Tokenizer.SIMPLE, writer.dictionary(), true));
+        }
+        directory.flush(writer);
+    }
+
+    @AfterClass
+    public static void deleteIndex() {
+        directory.close();
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void closerMatchOfCommonTermsRanksAtLeastAsHigh() {
+        for (Similarity similarity : new Similarity[]{Similarity.BIM, Similarity.BM25}) {
+            TopDocs topDocs = new Searcher(directory.current(), new ProximityEvaluator())
+                    .search("pay it", similarity, DOCUMENTS.length);
+            double adjacent = score(topDocs, ADJACENT);
+            double distant = score(topDocs, DISTANT);
+            assertTrue(similarity.name() + ": " + adjacent + " < " + distant, adjacent >= distant);
+        }
+    }
+
+    @Test
+    public void bimPhraseScoreGrowsWithFrequency() {
+        // the odds of common and of rare terms
+        double[][] idfs = {{0.33, 0.33}, {0.33, 9.0}, {9.0, 9.0}};
+        for (double[] phrase : idfs) {
+            double previous = Similarity.BIM.phraseScore(phrase, 0, 10, 10);
+            assertEquals(1.00, previous, 1e-9);
+            for (double freq : new double[]{0.1, 0.25, 0.5, 1, 2}) {
+                double score = Similarity.BIM.phraseScore(phrase, freq, 10, 10);
+                assertTrue(score >= previous);
+                previous = score;
+            }
+        }
+    }
+
+    private static double score(TopDocs topDocs, int doc) {
+        for (int i = 0; i < topDocs.size(); i++) {
+            if (topDocs.docId(i) == doc) {
+                return topDocs.score(i);
+            }
+        }
+        throw new AssertionError("Document " + doc + " not found");
+    }
+}
@@ -0,0 +1,98 @@
+package ir;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.TreeMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Cached results are dropped once the index they were computed on is
+ * updated, and late results of an older view are not cached.
+ */
+public class QueryCacheTest {
+
+    private File dir;
+    private IndexDirectory directory;
+
+    @Before
+    public void createIndex() throws IOException {
+        dir = Files.createTempDirectory("query-cache-test").toFile();
+        directory = IndexDirectory.open(dir, Tokenizer.SIMPLE, true);
+        add("Pizza for a hungry student");
+    }
+
+    @After
+    public void deleteIndex() {
+        directory.close();
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    private void add(String text) throws IOException {
+        IndexWriter writer = new IndexWriter(new TermDictionary(), true);
+        writer.addDocument("t3_" + directory.current().numDocs(), text,
+                Analyzer.analyze(text, Tokenizer.SIMPLE, writer.dictionary(), true));
+        directory.flush(writer);
+    }
+
+    @Test
+    public void hitsWhileTheIndexIsUnchanged() {
+        QueryCache cache = new QueryCache(4);
+        SegmentedIndex index = directory.current();
+        TreeMap<String, Integer> query = Analyzer.analyze("pizza", Tokenizer.SIMPLE);
+        assertNull(cache.get(index, query, Similarity.BM25, 10));
+        TopDocs topDocs = new Searcher(index).search("pizza", Similarity.BM25, 10);
+        cache.put(index, query, Similarity.BM25, 10, topDocs);
+        assertSame(topDocs, cache.get(index, query, Similarity.BM25, 10));
+        // another model or k is another query
+        assertNull(cache.get(index, query, Similarity.BIM, 10));
+        assertNull(cache.get(index, query, Similarity.BM25, 5));
+        assertEquals(1, cache.hits());
+        assertEquals(3, cache.misses());
+    }
+
+    @Test
+    public void invalidatedByANewGeneration() throws IOException {
+        QueryCache cache = new QueryCache(4);
+        SegmentedIndex before = directory.current();
+        TreeMap<String, Integer> query = Analyzer.analyze("pizza", Tokenizer.SIMPLE);
+        cache.get(before, query, Similarity.BM25, 10);
+        cache.put(before, query, Similarity.BM25, 10, new Searcher(before).search("pizza", Similarity.BM25, 10));
+        assertEquals(1, cache.size());
+
+        add("Broke until Friday, any pizza would help");
+        SegmentedIndex after = directory.current();
+        assertTrue(after.generation() > before.generation());
+        assertNull(cache.get(after, query, Similarity.BM25, 10));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.invalidations());
+
+        // results of the old view finishing late are not kept
+        cache.put(before, query, Similarity.BM25, 10, new Searcher(before).search("pizza", Similarity.BM25, 10));
+        assertEquals(0, cache.size());
+        TopDocs topDocs = new Searcher(after).search("pizza", Similarity.BM25, 10);
+        assertEquals(2, topDocs.size());
+        cache.put(after, query, Similarity.BM25, 10, topDocs);
+        assertSame(topDocs, cache.get(after, query, Similarity.BM25, 10));
+    }
+
+    @Test
+    public void searcherSeesTheUpdate() throws IOException {
+        QueryCache cache = new QueryCache(4);
+        assertEquals(1, new Searcher(directory.current(), cache).search("pizza", Similarity.BM25, 10).size());
+        assertEquals(1, new Searcher(directory.current(), cache).search("pizza", Similarity.BM25, 10).size());
+        assertEquals(1, cache.hits());
+        add("Broke until Friday, any pizza would help");
+        assertEquals(2, new Searcher(directory.current(), cache).search("pizza", Similarity.BM25, 10).size());
+    }
+}
@@ -0,0 +1,151 @@
+package ir;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * The number of results of every kind of query and evaluator, on a small
+ * index built in a temporary directory.
+ */
+public class SearcherTest {
+
+    private static final String[] DOCUMENTS = {
+        "Pizza for a hungry student, I will pay it forward",
+        "Broke until Friday, any pizza would help",
+        "Hungry family of four, pay it forward next week",
+        "Just moved, no money for food",
+        "Working the night shift, my mother could use a pizza"
+    };
+    private static final String[] QUERIES = {
+        "pizza", "hungry pizza", "\"pay it forward\"", "\"pay forward\"~2 hungry",
+        "pizza AND hungry", "pizza OR money", "NOT pizza", "nothing matches this"
+    };
+
+    private static File dir;
+    private static IndexDirectory directory;
+
+    @BeforeClass
+    public static void buildIndex() throws IOException {
+        dir = Files.createTempDirectory("searcher-test").toFile();
+        directory = IndexDirectory.open(dir, Tokenizer.SIMPLE, true);
+        IndexWriter writer = new IndexWriter(new TermDictionary(), true);
+        for (int doc = 0; doc < DOCUMENTS.length; doc++) {
+            writer.addDocument("t3_" + doc, DOCUMENTS[doc],
+                    Analyzer.analyze(DOCUMENTS[doc], Tokenizer.SIMPLE, writer.dictionary(), true));
+        }
+        directory.flush(writer);
+    }
+
+    @AfterClass
+    public static void deleteIndex() {
+        directory.close();
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    private static QueryEvaluator[] evaluators() {
+        return new QueryEvaluator[]{new MaxScoreEvaluator(), new DocAtATimeEvaluator(),
+            new TermAtATimeEvaluator(), new ProximityEvaluator()};
+    }
+
+    @Test
+    public void noResultsForZero() {
+        for (QueryEvaluator evaluator : evaluators()) {
+            Searcher searcher = new Searcher(directory.current(), evaluator);
+            for (String query : QUERIES) {
+                for (Similarity similarity : new Similarity[]{Similarity.BIM, Similarity.BM25}) {
+                    assertEquals(query, 0, searcher.search(query, similarity, 0).size());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void atMostKResults() {
+        for (QueryEvaluator evaluator : evaluators()) {
+            Searcher searcher = new Searcher(directory.current(), evaluator);
+            for (String query : QUERIES) {
+                int all = searcher.search(query, Similarity.BM25, DOCUMENTS.length).size();
+                for (int k = 1; k <= DOCUMENTS.length; k++) {
+                    assertEquals(query, Math.min(k, all), searcher.search(query, Similarity.BM25, k).size());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void selectorForZero() {
+        TopKSelector selector = new TopKSelector(0);
+        selector.collect(3, 1.5);
+        assertEquals(false, selector.isFull());
+        assertEquals(0, selector.topDocs().size());
+    }
+
+    // The doc ids of the results, in increasing order
+    private static Set<Integer> docs(TopDocs topDocs) {
+        Set<Integer> docs = new TreeSet<Integer>();
+        for (int i = 0; i < topDocs.size(); i++) {
+            docs.add(topDocs.docId(i));
+        }
+        return docs;
+    }
+
+    @Test
+    public void onlyNegations() {
+        Searcher searcher = new Searcher(directory.current());
+        for (Similarity similarity : new Similarity[]{Similarity.BIM, Similarity.BM25}) {
+            assertEquals(new TreeSet<Integer>(Arrays.asList(2, 3)), docs(searcher.search("NOT pizza", similarity, 5)));
+            assertEquals(Collections.singleton(3), docs(searcher.search("NOT pizza AND NOT hungry", similarity, 5)));
+            assertEquals(Collections.singleton(2), docs(searcher.search("NOT pizza hungry", similarity, 5)));
+            assertEquals(new TreeSet<Integer>(Arrays.asList(0, 2, 3)),
+                    docs(searcher.search("NOT pizza OR student", similarity, 5)));
+        }
+    }
+
+    @Test
+    public void completesTheWordNotItsCode() {
+        // "nig" encodes to NK but "night" to NT, the "gh" being silent, and
+        // "mot" to MT but "mother" to M0R
+        assertFalse(Analyzer.term("night").startsWith(Analyzer.term("nig")));
+        assertFalse(Analyzer.term("mother").startsWith(Analyzer.term("mot")));
+        Searcher searcher = new Searcher(directory.current());
+        assertTrue(searcher.prefixTerms("pizza nig", 5).contains(Analyzer.term("night")));
+        assertTrue(searcher.prefixTerms("pizza Mot", 5).contains(Analyzer.term("mother")));
+        assertEquals(4, searcher.searchPrefix("nig", Similarity.BM25, 1, 5).docId(0));
+        assertEquals(4, searcher.searchPrefix("moth", Similarity.BM25, 1, 5).docId(0));
+    }
+
+    @Test
+    public void selectorBreaksTiesByLowerDocId() {
+        // ties among the kept documents, and with those offered once full
+        TopKSelector selector = new TopKSelector(3);
+        for (int doc : new int[]{9, 5, 7, 2, 8, 1, 6}) {
+            selector.collect(doc, doc == 6 ? 2.0 : 1.0);
+        }
+        assertEquals(1.0, selector.minScore(), 0.0);
+        TopDocs topDocs = selector.topDocs();
+        assertEquals(3, topDocs.size());
+        assertEquals(6, topDocs.docId(0));
+        assertEquals(1, topDocs.docId(1));
+        assertEquals(2, topDocs.docId(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeK() {
+        new Searcher(directory.current()).search("pizza", Similarity.BM25, -1);
+    }
+}